@@ -0,0 +1,144 @@
+package boundedpipe;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of many producers and consumers sharing one pipe.
+ * <p>
+ * The group runs 8 producers and 1 consumer by default; pass
+ * <code>-tg producers,consumers</code> to JMH to measure other mixes, for
+ * instance <code>-tg 1,1</code>, <code>-tg 2,1</code> ... <code>-tg 8,1</code>
+ * for producer scaling. Neither side blocks, so the primary score also
+ * counts offers on a full pipe and polls on an empty pipe; compare the
+ * <code>offered</code> and <code>taken</code> secondary results instead,
+ * which count only the elements actually moved. <code>full</code> and
+ * <code>empty</code> count the calls that moved nothing.
+ * <code>StripedPipe</code> gives each producer thread its own lane when
+ * there are at least as many lanes as producers.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @version 1.0
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark {
+
+    @Param({"MpmcArrayPipe", "StripedPipe", "synchronized"})
+    private String implementation;
+
+    @Param({"1024"})
+    private int capacity;
+
+    @Param({"8"})
+    private int lanes;
+
+    private MpmcArrayPipe<Integer> mpmc;
+    private StripedPipe<Integer> striped;
+    private CircArrayPipe<Integer> locked;
+    private final Integer element = 42;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mpmc = new MpmcArrayPipe<>(capacity);
+        striped = new StripedPipe<>(capacity, lanes);
+        locked = new CircArrayPipe<>(capacity);
+    }
+
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(8)
+    public void produce(Counters counters) {
+        if (offer()) {
+            counters.offered++;
+        }
+        else {
+            counters.full++;
+        }
+    }
+
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(1)
+    public Integer consume(Counters counters) {
+        Integer taken = poll();
+        if (taken != null) {
+            counters.taken++;
+        }
+        else {
+            counters.empty++;
+        }
+        return taken;
+    }
+
+    private boolean offer() {
+        switch (implementation) {
+            case "MpmcArrayPipe":
+                return mpmc.offer(element);
+            case "StripedPipe":
+                return striped.offer(element);
+            default:
+                synchronized (locked) {
+                    if (locked.isFull()) {
+                        return false;
+                    }
+                    locked.append(element);
+                    return true;
+                }
+        }
+    }
+
+    private Integer poll() {
+        switch (implementation) {
+            case "MpmcArrayPipe":
+                return mpmc.poll();
+            case "StripedPipe":
+                return striped.poll();
+            default:
+                synchronized (locked) {
+                    return locked.isEmpty() ? null : locked.removeFirst();
+                }
+        }
+    }
+
+    /**
+     * Per-thread counts of the calls that moved an element and of those that
+     * did not, reported by JMH as secondary results.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long offered;
+        public long taken;
+        public long full;
+        public long empty;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            offered = 0;
+            taken = 0;
+            full = 0;
+            empty = 0;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package boundedpipe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of a one producer, one consumer hand-off through
+ * {@link SpscArrayPipe} against a {@link CircArrayPipe} guarded by
+ * <code>synchronized</code>.
+ * <p>
+ * Neither side blocks: an offer on a full pipe or a poll on an empty pipe
+ * counts as an operation that moved nothing.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @version 1.0
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandOffBenchmark {
+
+    @Param({"SpscArrayPipe", "synchronized"})
+    private String implementation;
+
+    @Param({"1024"})
+    private int capacity;
+
+    private SpscArrayPipe<Integer> spsc;
+    private CircArrayPipe<Integer> locked;
+    private final Integer element = 42;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        spsc = new SpscArrayPipe<>(capacity);
+        locked = new CircArrayPipe<>(capacity);
+    }
+
+    @Benchmark
+    @Group("handOff")
+    @GroupThreads(1)
+    public boolean produce() {
+        if (implementation.equals("SpscArrayPipe")) {
+            return spsc.offer(element);
+        }
+        synchronized (locked) {
+            if (locked.isFull()) {
+                return false;
+            }
+            locked.append(element);
+            return true;
+        }
+    }
+
+    @Benchmark
+    @Group("handOff")
+    @GroupThreads(1)
+    public Integer consume() {
+        if (implementation.equals("SpscArrayPipe")) {
+            return spsc.poll();
+        }
+        synchronized (locked) {
+            return locked.isEmpty() ? null : locked.removeFirst();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package boundedpipe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the cost of {@link InstrumentedPipe} over the
+ * {@link CircArrayPipe} it wraps, with and without residence timing.
+ * <p>
+ * Pipes are filled like in {@link PipeBenchmark}, so a single add followed
+ * by a single remove leaves the pipe in the state it started.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentedBenchmark {
+
+    @Param({"CircArrayPipe", "InstrumentedPipe", "TimedInstrumentedPipe"})
+    private String implementation;
+
+    @Param({"1024"})
+    private int capacity;
+
+    private Pipe<Integer> pipe;
+    private Integer[] batch;
+    private Integer element;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (implementation) {
+            case "CircArrayPipe":
+                pipe = new CircArrayPipe<>(capacity);
+                break;
+            case "InstrumentedPipe":
+                pipe = new InstrumentedPipe<>(new CircArrayPipe<>(capacity));
+                break;
+            case "TimedInstrumentedPipe":
+                pipe = new InstrumentedPipe<>(new CircArrayPipe<>(capacity),
+                        true);
+                break;
+            default:
+                throw new IllegalArgumentException(implementation);
+        }
+        PipeBenchmark.fill(pipe);
+        batch = new Integer[capacity / 2];
+        element = capacity;
+    }
+
+    @Benchmark
+    public Integer appendRemoveFirst() {
+        pipe.append(element);
+        return pipe.removeFirst();
+    }
+
+    /**
+     * Drains half of the pipe into an array and appends it back.
+     */
+    @Benchmark
+    public Pipe<Integer> drainAppendBatch() {
+        int count = pipe.drainFirst(batch, 0, batch.length);
+        pipe.appendBatch(batch, 0, count);
+        return pipe;
+    }
+}
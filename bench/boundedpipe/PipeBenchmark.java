@@ -0,0 +1,170 @@
+package boundedpipe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the operations of the AbstractPipe implementations, including
+ * LinkedPipe with node recycling.
+ * <p>
+ * Every pipe is filled with <code>capacity - 1</code> elements, so a single
+ * add followed by a single remove leaves the pipe in the state it started.
+ * </p>
+ * <p>
+ * Run {@link #main(String[])} to report throughput and average time together
+ * with the GC allocation profile.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipeBenchmark {
+
+    @Param({"CircArrayPipe", "LinkedPipe", "RecyclingLinkedPipe", "SegmentedPipe",
+            "ListPipe"})
+    private String implementation;
+
+    @Param({"8", "64", "1024", "65536", "1048576"})
+    private int capacity;
+
+    private Pipe<Integer> pipe;
+    private Pipe<Integer> twin;
+    private Pipe<Integer> source;
+    private Pipe<Integer> target;
+    private Integer element;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pipe = fill(newPipe(implementation, capacity));
+        twin = fill(newPipe(implementation, capacity));
+        source = fill(newPipe(implementation, capacity));
+        target = newPipe(implementation, capacity);
+        element = capacity;
+    }
+
+    /**
+     * Creates an empty pipe of the given implementation.
+     *
+     * @param implementation the name of the implementation
+     * @param capacity the number of element that the pipe can hold
+     * @return a new, empty pipe
+     */
+    static Pipe<Integer> newPipe(String implementation, int capacity) {
+        switch (implementation) {
+            case "CircArrayPipe":
+                return new CircArrayPipe<>(capacity);
+            case "LinkedPipe":
+                return new LinkedPipe<>(capacity);
+            case "RecyclingLinkedPipe":
+                return new LinkedPipe<>(capacity, true);
+            case "SegmentedPipe":
+                return new SegmentedPipe<>(capacity);
+            case "ListPipe":
+                return new ListPipe<>(capacity);
+            default:
+                throw new IllegalArgumentException(implementation);
+        }
+    }
+
+    /**
+     * Appends elements until only one free slot is left.
+     *
+     * @param p the pipe to be filled
+     * @return the specified pipe
+     */
+    static Pipe<Integer> fill(Pipe<Integer> p) {
+        for (int i = 0; i < p.capacity() - 1; i++) {
+            p.append(i);
+        }
+        return p;
+    }
+
+    @Benchmark
+    public Integer appendRemoveFirst() {
+        pipe.append(element);
+        return pipe.removeFirst();
+    }
+
+    @Benchmark
+    public Integer appendRemoveLast() {
+        pipe.append(element);
+        return pipe.removeLast();
+    }
+
+    @Benchmark
+    public Integer prependRemoveFirst() {
+        pipe.prepend(element);
+        return pipe.removeFirst();
+    }
+
+    @Benchmark
+    public Integer prependRemoveLast() {
+        pipe.prepend(element);
+        return pipe.removeLast();
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (Integer e : pipe) {
+            bh.consume(e);
+        }
+    }
+
+    @Benchmark
+    public Pipe<Integer> copy() {
+        return pipe.copy();
+    }
+
+    /**
+     * Moves the contents of source into target and back again, so each
+     * invocation transfers <code>2 * (capacity - 1)</code> elements.
+     */
+    @Benchmark
+    public Pipe<Integer> appendAll() {
+        target.appendAll(source);
+        source.appendAll(target);
+        return source;
+    }
+
+    @Benchmark
+    public boolean equalsTwin() {
+        return pipe.equals(twin);
+    }
+
+    @Benchmark
+    public int hashCodeAll() {
+        return pipe.hashCode();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PipeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -1,6 +1,10 @@
 package boundedpipe;
 
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 
 /**
  * Abstract Pipe.
@@ -38,18 +42,154 @@ public abstract class AbstractPipe<E> implements Pipe<E> {
     }
 
     @Override
-    public void appendAll(Pipe<E> that) {
+    public void appendAll(Pipe<E> that) throws IllegalStateException,
+            IllegalArgumentException {
         if (that == null) {
             throw new IllegalArgumentException();
         }
 
-        if (that.length() == 0) {
+        if (that == this || that.isEmpty()) {
             return;
         }
 
-        E element = that.removeFirst();
-        this.append(element);
-        this.appendAll(that);
+        if (length() + that.length() > capacity) {
+            throw new IllegalStateException();
+        }
+
+        transferAll(that);
+    }
+
+    /**
+     * Moves all the elements of the specified pipe to the end of this pipe.
+     * The caller has already checked that the elements fit and that the
+     * specified pipe is neither this pipe nor empty. Subclasses may override
+     * this to move the elements in bulk.
+     *
+     * @param that the pipe to be drained into this pipe
+     */
+    protected void transferAll(Pipe<E> that) {
+        while (!that.isEmpty()) {
+            append(that.removeFirst());
+        }
+    }
+
+    @Override
+    public void appendBatch(E[] src, int offset, int length)
+            throws IllegalStateException, IllegalArgumentException,
+            IndexOutOfBoundsException {
+        checkBatch(src, offset, length);
+
+        for (int i = 0; i < length; i++) {
+            append(src[offset + i]);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void appendBatch(Collection<? extends E> collection)
+            throws IllegalStateException, IllegalArgumentException {
+        if (collection == null) {
+            throw new IllegalArgumentException();
+        }
+
+        E[] src = (E[]) collection.toArray();
+        appendBatch(src, 0, src.length);
+    }
+
+    /**
+     * Checks, before anything is added, that a batch of elements describes a
+     * range of the array, fits in this pipe and holds no null.
+     *
+     * @param src    the array holding the elements
+     * @param offset the index in the array of the first element
+     * @param length the number of elements to add
+     * @throws IllegalStateException     if the elements do not fit
+     * @throws IllegalArgumentException  if the array or an element is null
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    protected void checkBatch(E[] src, int offset, int length)
+            throws IllegalStateException, IllegalArgumentException,
+            IndexOutOfBoundsException {
+        checkRange(src, offset, length);
+
+        if (length() + length > capacity) {
+            throw new IllegalStateException();
+        }
+
+        for (int i = offset; i < offset + length; i++) {
+            if (src[i] == null) {
+                throw new IllegalArgumentException();
+            }
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> collection, int maxElements)
+            throws IllegalArgumentException {
+        if (collection == null || collection == this) {
+            throw new IllegalArgumentException();
+        }
+
+        return drain(collection::add, maxElements);
+    }
+
+    @Override
+    public int drainFirst(E[] dest, int offset, int maxElements)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkRange(dest, offset, maxElements);
+
+        int count = Math.min(maxElements, length());
+        for (int i = 0; i < count; i++) {
+            dest[offset + i] = removeFirst();
+        }
+        return count;
+    }
+
+    @Override
+    public int drain(Consumer<? super E> consumer, int maxElements)
+            throws IllegalArgumentException {
+        if (consumer == null || maxElements < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        int count = Math.min(maxElements, length());
+        for (int i = 0; i < count; i++) {
+            consumer.accept(removeFirst());
+        }
+        return count;
+    }
+
+    /**
+     * Checks that <code>offset</code> and <code>length</code> describe a
+     * range of the specified array.
+     *
+     * @param array  the array
+     * @param offset the index of the first slot of the range
+     * @param length the number of slots of the range
+     * @throws IllegalArgumentException  if the array is null
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    static void checkRange(Object[] array, int offset, int length)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        if (array == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (offset < 0 || length < 0 || offset > array.length - length) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * Returns a spliterator over the iterator of this pipe that knows the
+     * length, so parallel streams can split it into balanced batches.
+     *
+     * @return an ordered, sized spliterator over the elements
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator(iterator(), length(),
+                Spliterator.ORDERED | Spliterator.NONNULL);
     }
 
     @Override
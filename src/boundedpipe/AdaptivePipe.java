@@ -0,0 +1,209 @@
+package boundedpipe;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Pipe that keeps its elements in a {@link CircArrayPipe} or a
+ * {@link SegmentedPipe} and moves them to the other one when the observed
+ * occupancy calls for it.
+ * </p>
+ * <p>
+ * The length is sampled every {@value #SAMPLE_INTERVAL} added or removed
+ * elements, and every {@value #WINDOW} samples the mean length is compared
+ * with the capacity. An array pipe whose mean occupancy falls below
+ * {@value #SEGMENTED_OCCUPANCY} moves to a segmented pipe, and a segmented
+ * pipe whose mean occupancy reaches one half moves back, so a pipe near one
+ * threshold does not move back and forth. Small pipes always stay in an
+ * array. Moving takes time proportional to the length.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in this pipe
+ * @version 1.0
+ */
+public class AdaptivePipe<E> extends AbstractPipe<E> {
+    static final int SAMPLE_INTERVAL = 64;
+    static final int WINDOW = 64;
+    static final double SEGMENTED_OCCUPANCY = 0.25;
+
+    private Pipe<E> pipe;
+    private int changes;
+    private int samples;
+    private long sampledLength;
+
+    /**
+     * Constructor. Starts with an array pipe.
+     *
+     * @param capacity the number of element that this pipe can hold
+     */
+    public AdaptivePipe(int capacity) {
+        this(capacity, 1.0);
+    }
+
+    /**
+     * Constructor. Starts with the pipe {@link PipeBuilder} would choose for
+     * the specified occupancy.
+     *
+     * @param capacity          the number of element that this pipe can hold
+     * @param expectedOccupancy the fraction of the capacity expected to be
+     *                          in use
+     */
+    public AdaptivePipe(int capacity, double expectedOccupancy) {
+        super(capacity);
+        pipe = PipeBuilder.prefersArray(capacity, expectedOccupancy)
+                ? new CircArrayPipe<>(capacity)
+                : new SegmentedPipe<>(capacity);
+    }
+
+    @Override
+    public E first() {
+        return pipe.first();
+    }
+
+    @Override
+    public E last() {
+        return pipe.last();
+    }
+
+    @Override
+    public void prepend(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        pipe.prepend(element);
+        changed(1);
+    }
+
+    @Override
+    public void append(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        pipe.append(element);
+        changed(1);
+    }
+
+    @Override
+    public E removeFirst() throws IllegalStateException {
+        E element = pipe.removeFirst();
+        changed(1);
+        return element;
+    }
+
+    @Override
+    public E removeLast() throws IllegalStateException {
+        E element = pipe.removeLast();
+        changed(1);
+        return element;
+    }
+
+    @Override
+    public int length() {
+        return pipe.length();
+    }
+
+    @Override
+    protected void transferAll(Pipe<E> that) {
+        int count = that.length();
+        pipe.appendAll(that);
+        changed(count);
+    }
+
+    @Override
+    public void appendBatch(E[] src, int offset, int length)
+            throws IllegalStateException, IllegalArgumentException,
+            IndexOutOfBoundsException {
+        pipe.appendBatch(src, offset, length);
+        changed(length);
+    }
+
+    @Override
+    public int drainFirst(E[] dest, int offset, int maxElements)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        int count = pipe.drainFirst(dest, offset, maxElements);
+        changed(count);
+        return count;
+    }
+
+    @Override
+    public int drain(Consumer<? super E> consumer, int maxElements)
+            throws IllegalArgumentException {
+        int before = pipe.length();
+        try {
+            return pipe.drain(consumer, maxElements);
+        }
+        finally {
+            changed(before - pipe.length());
+        }
+    }
+
+    @Override
+    public Pipe<E> newInstance() {
+        return new AdaptivePipe<>(capacity(),
+                pipe instanceof CircArrayPipe ? 1.0 : SEGMENTED_OCCUPANCY);
+    }
+
+    @Override
+    public void clear() {
+        pipe.clear();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return pipe.iterator();
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return pipe.spliterator();
+    }
+
+    /**
+     * Returns the pipe currently holding the elements.
+     */
+    Pipe<E> delegate() {
+        return pipe;
+    }
+
+    /**
+     * Counts added or removed elements and takes a sample of the length
+     * every {@link #SAMPLE_INTERVAL} of them.
+     */
+    private void changed(int count) {
+        changes += count;
+        if (changes < SAMPLE_INTERVAL) {
+            return;
+        }
+
+        changes = 0;
+        sampledLength += pipe.length();
+        samples++;
+        if (samples == WINDOW) {
+            double occupancy = (double) sampledLength / samples / capacity();
+            samples = 0;
+            sampledLength = 0;
+            adapt(occupancy);
+        }
+    }
+
+    /**
+     * Moves the elements to the other representation if the specified mean
+     * occupancy is past its threshold.
+     */
+    private void adapt(double occupancy) {
+        Pipe<E> next = null;
+        if (pipe instanceof CircArrayPipe) {
+            if (occupancy < SEGMENTED_OCCUPANCY
+                    && !PipeBuilder.prefersArray(capacity(), occupancy)) {
+                next = new SegmentedPipe<>(capacity());
+            }
+        }
+        else if (PipeBuilder.prefersArray(capacity(), occupancy)) {
+            next = new CircArrayPipe<>(capacity());
+        }
+
+        if (next != null) {
+            next.appendAll(pipe);
+            pipe = next;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package boundedpipe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Consumer that takes the elements of a pipe in batches and hands each batch
+ * to a handler, so that the work downstream, such as a write, is done once
+ * per batch instead of once per element.
+ * </p>
+ * <p>
+ * A batch is closed when it reaches the current batch size or when the
+ * maximum wait has passed since the consumer started filling it, whichever
+ * comes first. The batch size is tuned after every batch: it is halved when
+ * the time from taking the first element of the batch until the handler
+ * returned was longer than the latency target, and grows by an eighth when
+ * the batch was full and elements were still left in the pipe, up to the
+ * maximum batch size. For a batch closed before it was full, only the
+ * handler is timed, since the time spent waiting for more elements is set
+ * by the maximum wait and a smaller batch size would not shorten it.
+ * </p>
+ * <p>
+ * While {@link #run()} finds the pipe empty, it sleeps between polls, twice
+ * as long after each empty poll as after the one before, from 100
+ * microseconds up to 10 milliseconds, and polls without sleeping again as
+ * soon as a poll finds elements, so an idle consumer hardly wakes up.
+ * </p>
+ * <p>
+ * The handler receives the same unmodifiable list every time, cleared after
+ * the handler returns, so it must not keep a reference to it. The methods of
+ * this class must be called by one thread at a time; the pipe must allow
+ * that thread to remove while producers add, as {@link SpscArrayPipe},
+ * {@link MpmcArrayPipe} and {@link LockedBlockingPipe} do.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements consumed
+ * @version 1.0
+ */
+public class BatchingConsumer<E> implements Runnable {
+    private static final int INITIAL_BATCH_SIZE = 16;
+    private static final int SPINS = 64;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long MAX_IDLE_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Pipe<E> pipe;
+    private final Consumer<? super List<E>> handler;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long latencyTargetNanos;
+    private final ArrayList<E> batch;
+    private final List<E> view;
+    private volatile int batchSize;
+    private volatile long batchCount;
+    private volatile long elementCount;
+    private volatile boolean stopped;
+    /** The thread in {@link #run()}, woken by {@link #stop()}. */
+    private volatile Thread runner;
+
+    /**
+     * Constructor. Without a latency target, the batch size only grows.
+     *
+     * @param pipe          the pipe the elements are taken from
+     * @param handler       the handler receiving each batch
+     * @param maxBatchSize  the maximum number of elements in a batch
+     * @param maxWaitMicros the longest time spent filling a batch, in
+     *                      microseconds
+     */
+    public BatchingConsumer(Pipe<E> pipe, Consumer<? super List<E>> handler,
+            int maxBatchSize, long maxWaitMicros) {
+        this(pipe, handler, maxBatchSize, maxWaitMicros, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param pipe                 the pipe the elements are taken from
+     * @param handler              the handler receiving each batch
+     * @param maxBatchSize         the maximum number of elements in a batch
+     * @param maxWaitMicros        the longest time spent filling a batch, in
+     *                             microseconds
+     * @param latencyTargetMicros  the longest time from taking the first
+     *                             element of a batch until it is handled, in
+     *                             microseconds
+     * @throws IllegalArgumentException if the pipe or the handler is null,
+     *                                  the maximum batch size or the latency
+     *                                  target is not positive, or the
+     *                                  maximum wait is negative
+     */
+    public BatchingConsumer(Pipe<E> pipe, Consumer<? super List<E>> handler,
+            int maxBatchSize, long maxWaitMicros, long latencyTargetMicros)
+            throws IllegalArgumentException {
+        if (pipe == null || handler == null || maxBatchSize <= 0
+                || maxWaitMicros < 0 || latencyTargetMicros <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.pipe = pipe;
+        this.handler = handler;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.latencyTargetNanos =
+                TimeUnit.MICROSECONDS.toNanos(latencyTargetMicros);
+        this.batch = new ArrayList<>(maxBatchSize);
+        this.view = Collections.unmodifiableList(batch);
+        this.batchSize = Math.min(maxBatchSize, INITIAL_BATCH_SIZE);
+    }
+
+    /**
+     * Fills one batch, waiting up to the maximum wait, and hands it to the
+     * handler unless it is empty.
+     *
+     * @return the number of elements handled
+     */
+    public int poll() {
+        return poll(true);
+    }
+
+    /**
+     * Handles batches until {@link #stop()} is called, then handles the
+     * elements left in the pipe.
+     */
+    @Override
+    public void run() {
+        runner = Thread.currentThread();
+        try {
+            long idleNanos = IDLE_NANOS;
+            while (!stopped) {
+                if (poll(true) > 0) {
+                    idleNanos = IDLE_NANOS;
+                }
+                else if (!stopped) {
+                    LockSupport.parkNanos(idleNanos);
+                    idleNanos = Math.min(idleNanos * 2, MAX_IDLE_NANOS);
+                }
+            }
+            while (poll(false) > 0) {
+                // Flush what was added before the stop.
+            }
+        }
+        finally {
+            runner = null;
+        }
+    }
+
+    /**
+     * Makes {@link #run()} return once the pipe is empty. May be called from
+     * any thread.
+     */
+    public void stop() {
+        stopped = true;
+        Thread thread = runner;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Returns the current batch size.
+     *
+     * @return the current batch size
+     */
+    public int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns the number of batches handled.
+     *
+     * @return the number of batches handled
+     */
+    public long batchCount() {
+        return batchCount;
+    }
+
+    /**
+     * Returns the number of elements handled.
+     *
+     * @return the number of elements handled
+     */
+    public long elementCount() {
+        return elementCount;
+    }
+
+    private int poll(boolean wait) {
+        int target = batchSize;
+        long start = System.nanoTime();
+        long firstAt = start;
+        int spins = 0;
+        while (true) {
+            boolean wasEmpty = batch.isEmpty();
+            pipe.drainTo(batch, target - batch.size());
+            if (wasEmpty && !batch.isEmpty()) {
+                firstAt = System.nanoTime();
+            }
+            if (batch.size() >= target || !wait || stopped
+                    || System.nanoTime() - start >= maxWaitNanos) {
+                break;
+            }
+            if (spins < SPINS) {
+                spins++;
+                Thread.onSpinWait();
+            }
+            else {
+                LockSupport.parkNanos(Math.min(PARK_NANOS, maxWaitNanos));
+            }
+        }
+
+        int count = batch.size();
+        if (count == 0) {
+            return 0;
+        }
+
+        boolean full = count == target;
+        boolean backlog = !pipe.isEmpty();
+        long from = full ? firstAt : System.nanoTime();
+        try {
+            handler.accept(view);
+        }
+        finally {
+            batch.clear();
+        }
+        batchCount++;
+        elementCount += count;
+        adapt(full && backlog, System.nanoTime() - from);
+        return count;
+    }
+
+    /**
+     * Halves the batch size if the latency target was missed, or grows it if
+     * the consumer is falling behind.
+     */
+    private void adapt(boolean behind, long latency) {
+        int size = batchSize;
+        if (latency > latencyTargetNanos) {
+            batchSize = Math.max(1, size >> 1);
+        }
+        else if (behind && size < maxBatchSize) {
+            batchSize = Math.min(maxBatchSize, size + Math.max(1, size >> 3));
+        }
+    }
+}
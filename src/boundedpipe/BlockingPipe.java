@@ -0,0 +1,130 @@
+package boundedpipe;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A pipe that can be shared between threads and that additionally supports
+ * operations that wait for space to become available when adding an element
+ * to a full pipe, and for an element to become available when removing from
+ * an empty pipe.
+ * </p>
+ * <p>
+ * The methods inherited from {@link Pipe} keep their non-waiting contract:
+ * they throw <code>IllegalStateException</code> on a full or empty pipe.
+ * </p>
+ *
+ * @param <E> the type of elements in this pipe
+ * @author pohan(pohan)
+ * @version 1.0
+ */
+public interface BlockingPipe<E> extends Pipe<E> {
+
+    /**
+     * <p>
+     * Adds the specified element to the beginning of this pipe, waiting if
+     * necessary for space to become available.
+     * </p>
+     *
+     * @param element the element to be prepended to this pipe
+     * @throws InterruptedException     if interrupted while waiting
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    void putFirst(E element) throws InterruptedException,
+            IllegalArgumentException;
+
+    /**
+     * <p>
+     * Adds the specified element to the end of this pipe, waiting if
+     * necessary for space to become available.
+     * </p>
+     *
+     * @param element the element to be appended to this pipe
+     * @throws InterruptedException     if interrupted while waiting
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    void putLast(E element) throws InterruptedException,
+            IllegalArgumentException;
+
+    /**
+     * <p>
+     * Removes and returns the first element from this pipe, waiting if
+     * necessary until an element becomes available.
+     * </p>
+     *
+     * @return the first element from this pipe
+     * @throws InterruptedException if interrupted while waiting
+     */
+    E takeFirst() throws InterruptedException;
+
+    /**
+     * <p>
+     * Removes and returns the last element from this pipe, waiting if
+     * necessary until an element becomes available.
+     * </p>
+     *
+     * @return the last element from this pipe
+     * @throws InterruptedException if interrupted while waiting
+     */
+    E takeLast() throws InterruptedException;
+
+    /**
+     * <p>
+     * Adds the specified element to the beginning of this pipe, waiting up to
+     * the specified time for space to become available.
+     * </p>
+     *
+     * @param element the element to be prepended to this pipe
+     * @param timeout how long to wait before giving up
+     * @param unit    the unit of the timeout
+     * @return true if the element was added, false if the time elapsed first
+     * @throws InterruptedException     if interrupted while waiting
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    boolean offerFirst(E element, long timeout, TimeUnit unit)
+            throws InterruptedException, IllegalArgumentException;
+
+    /**
+     * <p>
+     * Adds the specified element to the end of this pipe, waiting up to the
+     * specified time for space to become available.
+     * </p>
+     *
+     * @param element the element to be appended to this pipe
+     * @param timeout how long to wait before giving up
+     * @param unit    the unit of the timeout
+     * @return true if the element was added, false if the time elapsed first
+     * @throws InterruptedException     if interrupted while waiting
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    boolean offerLast(E element, long timeout, TimeUnit unit)
+            throws InterruptedException, IllegalArgumentException;
+
+    /**
+     * <p>
+     * Removes and returns the first element from this pipe, waiting up to the
+     * specified time for an element to become available.
+     * </p>
+     *
+     * @param timeout how long to wait before giving up
+     * @param unit    the unit of the timeout
+     * @return the first element from this pipe, or null if the time elapsed
+     * first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    E pollFirst(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * <p>
+     * Removes and returns the last element from this pipe, waiting up to the
+     * specified time for an element to become available.
+     * </p>
+     *
+     * @param timeout how long to wait before giving up
+     * @param unit    the unit of the timeout
+     * @return the last element from this pipe, or null if the time elapsed
+     * first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    E pollLast(long timeout, TimeUnit unit) throws InterruptedException;
+}
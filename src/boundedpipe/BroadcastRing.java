@@ -0,0 +1,342 @@
+package boundedpipe;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Ring of elements published once by a producer and read by every
+ * subscribed consumer, each through its own {@link Cursor}, without copying.
+ * </p>
+ * <p>
+ * The storage is laid out as in {@link CircArrayPipe}: an array rounded up
+ * to a power of two, indexed with a mask, and positions counted from the
+ * creation of the ring. The producer publishes <code>tail</code> with a
+ * release store after writing an element; each cursor publishes the
+ * position of its next element the same way after reading. The producer may
+ * only run <code>capacity</code> positions ahead of the slowest cursor, and
+ * only looks at the cursors again when its cached view of the slowest one
+ * says the ring is full.
+ * </p>
+ * <p>
+ * One thread at a time may publish, and one thread at a time may read
+ * through each cursor. A cursor sees the elements published after it
+ * subscribed; with no cursor, elements are published and dropped. An
+ * element stays referenced by its slot until the slot is written again.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in this ring
+ * @version 1.0
+ */
+public class BroadcastRing<E> {
+    private static final VarHandle TAIL;
+    private static final Cursor<?>[] NO_CURSORS = new Cursor<?>[0];
+
+    static {
+        try {
+            TAIL = MethodHandles.lookup().findVarHandle(BroadcastRing.class,
+                    "tail", long.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final private E[] elements;
+    final private int mask;
+    final private int capacity;
+    /** Written by the producer only. */
+    private long tail;
+    /** The producer's last view of the slowest cursor. */
+    private long gateCache;
+    /** Replaced as a whole when a cursor subscribes or closes. */
+    private volatile Cursor<?>[] cursors = NO_CURSORS;
+
+    /**
+     * Constructor
+     *
+     * @param capacity the number of elements the producer may run ahead of
+     *                 the slowest cursor
+     * @throws IllegalArgumentException if the capacity is not positive or is
+     *                                  greater than 2^30
+     */
+    @SuppressWarnings("unchecked")
+    public BroadcastRing(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0 || capacity > CircArrayPipe.MAX_STORAGE) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        int storage = capacity == 1
+                ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        elements = (E[]) new Object[storage];
+        mask = storage - 1;
+    }
+
+    /**
+     * Returns the number of elements the producer may run ahead of the
+     * slowest cursor.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Publishes the specified element to every cursor unless the slowest
+     * cursor is a full capacity behind. Producer only.
+     *
+     * @param element the element to be published
+     * @return true if the element was published, false if the ring is full
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    public boolean offer(E element) throws IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        long t = tail;
+        if (t - gateCache >= capacity) {
+            gateCache = slowest(t);
+            if (t - gateCache >= capacity) {
+                return false;
+            }
+        }
+
+        elements[(int) (t & mask)] = element;
+        TAIL.setRelease(this, t + 1);
+        return true;
+    }
+
+    /**
+     * Publishes the specified element to every cursor. Producer only.
+     *
+     * @param element the element to be published
+     * @throws IllegalStateException    if the slowest cursor is a full
+     *                                  capacity behind
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    public void publish(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        if (!offer(element)) {
+            throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * Returns the number of elements that can be published before the
+     * slowest cursor has to catch up. Producer only.
+     *
+     * @return the free capacity
+     */
+    public int remainingCapacity() {
+        long t = tail;
+        gateCache = slowest(t);
+        return (int) (capacity - (t - gateCache));
+    }
+
+    /**
+     * Returns a new cursor reading the elements published from now on.
+     *
+     * @return the new cursor
+     */
+    public synchronized Cursor<E> subscribe() {
+        Cursor<E> cursor = new Cursor<>(this, (long) TAIL.getAcquire(this));
+        Cursor<?>[] current = cursors;
+        Cursor<?>[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = cursor;
+        cursors = next;
+        // The producer may have looked at the cursors just before this one
+        // was added; starting from the tail seen now keeps it behind any
+        // position the producer was allowed to overwrite.
+        Cursor.SEQUENCE.setRelease(cursor, (long) TAIL.getAcquire(this));
+        return cursor;
+    }
+
+    /**
+     * Returns the number of subscribed cursors.
+     *
+     * @return the number of cursors
+     */
+    public int subscriberCount() {
+        return cursors.length;
+    }
+
+    private synchronized void unsubscribe(Cursor<?> cursor) {
+        Cursor<?>[] current = cursors;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == cursor) {
+                Cursor<?>[] next = new Cursor<?>[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, next.length - i);
+                cursors = next;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the position of the slowest cursor, or the specified tail if
+     * there is no cursor.
+     */
+    private long slowest(long t) {
+        long min = t;
+        for (Cursor<?> cursor : cursors) {
+            min = Math.min(min, (long) Cursor.SEQUENCE.getAcquire(cursor));
+        }
+        return min;
+    }
+
+    /**
+     * Reading position of one consumer in a ring.
+     *
+     * @param <E> the type of elements in the ring
+     */
+    public static class Cursor<E> {
+        private static final VarHandle SEQUENCE;
+
+        static {
+            try {
+                SEQUENCE = MethodHandles.lookup().findVarHandle(Cursor.class,
+                        "sequence", long.class);
+            }
+            catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final BroadcastRing<E> ring;
+        /** The position of the next element. Written by the consumer only. */
+        private long sequence;
+        /** The consumer's last view of the tail. */
+        private long tailCache;
+        private boolean closed;
+
+        Cursor(BroadcastRing<E> ring, long sequence) {
+            this.ring = ring;
+            this.sequence = sequence;
+            this.tailCache = sequence;
+        }
+
+        /**
+         * Returns the next element and moves past it, or returns null if
+         * this cursor has read every published element.
+         *
+         * @return the next element, or null
+         * @throws IllegalStateException if this cursor is closed
+         */
+        public E poll() throws IllegalStateException {
+            if (closed) {
+                throw new IllegalStateException();
+            }
+
+            long s = (long) SEQUENCE.getOpaque(this);
+            if (s >= tailCache) {
+                tailCache = (long) TAIL.getAcquire(ring);
+                if (s >= tailCache) {
+                    return null;
+                }
+            }
+
+            E element = ring.elements[(int) (s & ring.mask)];
+            SEQUENCE.setRelease(this, s + 1);
+            return element;
+        }
+
+        /**
+         * Returns the next element without moving past it, or returns null
+         * if this cursor has read every published element.
+         *
+         * @return the next element, or null
+         */
+        public E peek() {
+            long s = (long) SEQUENCE.getOpaque(this);
+            if (closed || s >= (long) TAIL.getAcquire(ring)) {
+                return null;
+            }
+            return ring.elements[(int) (s & ring.mask)];
+        }
+
+        /**
+         * Passes up to <code>maxElements</code> unread elements to the
+         * specified consumer. Reads the tail once and publishes the new
+         * position once, so the producer sees the freed slots together.
+         *
+         * @param consumer    the consumer receiving the elements
+         * @param maxElements the maximum number of elements to read
+         * @return the number of elements read
+         * @throws IllegalArgumentException if the consumer is null or
+         *                                  maxElements is negative
+         * @throws IllegalStateException    if this cursor is closed
+         */
+        public int drain(Consumer<? super E> consumer, int maxElements)
+                throws IllegalArgumentException, IllegalStateException {
+            if (consumer == null || maxElements < 0) {
+                throw new IllegalArgumentException();
+            }
+            if (closed) {
+                throw new IllegalStateException();
+            }
+
+            long s = (long) SEQUENCE.getOpaque(this);
+            tailCache = (long) TAIL.getAcquire(ring);
+            int count = (int) Math.min(maxElements, tailCache - s);
+            long end = s + count;
+            try {
+                while (s != end) {
+                    E element = ring.elements[(int) (s & ring.mask)];
+                    s++;
+                    consumer.accept(element);
+                }
+            }
+            finally {
+                SEQUENCE.setRelease(this, s);
+            }
+            return count;
+        }
+
+        /**
+         * Returns the number of published elements this cursor has not
+         * read.
+         *
+         * @return the number of unread elements
+         */
+        public int length() {
+            long s = (long) SEQUENCE.getOpaque(this);
+            return (int) Math.max(0, (long) TAIL.getAcquire(ring) - s);
+        }
+
+        /**
+         * Returns the position of the next element, counted from the
+         * creation of the ring.
+         *
+         * @return the position of the next element
+         */
+        public long sequence() {
+            return (long) SEQUENCE.getOpaque(this);
+        }
+
+        /**
+         * Stops this cursor from holding back the producer. Further reads
+         * fail.
+         */
+        public void close() {
+            if (!closed) {
+                closed = true;
+                ring.unsubscribe(this);
+            }
+        }
+
+        /**
+         * Returns whether this cursor is closed.
+         *
+         * @return true if this cursor is closed
+         */
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+}
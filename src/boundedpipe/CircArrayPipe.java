@@ -2,38 +2,85 @@ package boundedpipe;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
  * Pipe implemented by circular approach.
+ * <p>
+ * The array is rounded up to a power of two so that a position is turned
+ * into an index with a mask instead of a division. <code>head</code> and
+ * <code>tail</code> count positions rather than indices: the first element is
+ * at position <code>head</code>, the last at <code>tail - 1</code>, and the
+ * length is <code>tail - head</code>, which stays correct when the counters
+ * overflow. The capacity passed to the constructor is still the limit.
+ * </p>
  *
  * @author pohan(pohan)
  * @param <E> the type of elements in this pipe
  * @version 1.0
  */
-public class CircArrayPipe<E> extends AbstractPipe<E> {
+public class CircArrayPipe<E> extends AbstractPipe<E>
+        implements RandomAccessPipe<E> {
+    static final int MAX_STORAGE = 1 << 30;
+
     final private E[] elements;
-    private int first = -1;
-    private int last = -1;
+    final private int mask;
+    private int head;
+    private int tail;
 
     /**
      * Constructor
      *
      * @param capacity the number of element that this pipe can hold
+     * @throws IllegalArgumentException if the capacity is greater than 2^30
      */
     @SuppressWarnings("unchecked")
-    public CircArrayPipe(int capacity) {
+    public CircArrayPipe(int capacity) throws IllegalArgumentException {
         super(capacity);
-        elements = (E[]) new Object[capacity];
+        if (capacity > MAX_STORAGE) {
+            throw new IllegalArgumentException();
+        }
+        int storage = capacity <= 1
+                ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        elements = (E[]) new Object[storage];
+        mask = storage - 1;
     }
 
     @Override
     public E first() {
-        return first == -1 ? null : elements[first];
+        return head == tail ? null : elements[head & mask];
     }
 
     @Override
     public E last() {
-        return last == -1 ? null : elements[last];
+        return head == tail ? null : elements[(tail - 1) & mask];
+    }
+
+    @Override
+    public E get(int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        return elements[(head + index) & mask];
+    }
+
+    @Override
+    public E set(int index, E element) throws IllegalArgumentException,
+            IndexOutOfBoundsException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        checkIndex(index);
+        int slot = (head + index) & mask;
+        E previous = elements[slot];
+        elements[slot] = element;
+        return previous;
+    }
+
+    private void checkIndex(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException();
+        }
     }
 
     @Override
@@ -47,15 +94,8 @@ public class CircArrayPipe<E> extends AbstractPipe<E> {
             throw new IllegalStateException();
         }
 
-        if (isEmpty()) {
-            first = 0;
-            last = 0;
-            elements[first] = element;
-            return;
-        }
-
-        first = (first + capacity() - 1) % capacity();
-        elements[first] = element;
+        head--;
+        elements[head & mask] = element;
     }
 
     @Override
@@ -69,15 +109,8 @@ public class CircArrayPipe<E> extends AbstractPipe<E> {
             throw new IllegalStateException();
         }
 
-        if (isEmpty()) {
-            first = 0;
-            last = 0;
-            elements[first] = element;
-            return;
-        }
-
-        last = (last + capacity() + 1) % capacity();
-        elements[last] = element;
+        elements[tail & mask] = element;
+        tail++;
     }
 
     @Override
@@ -86,15 +119,9 @@ public class CircArrayPipe<E> extends AbstractPipe<E> {
             throw new IllegalStateException();
         }
 
-        int preFirst = first;
-        if (first == last) {
-            resetPtr();
-        }
-        else {
-            first = (first + capacity() + 1) % capacity();
-        }
-
-        return elements[preFirst];
+        E element = elements[head & mask];
+        head++;
+        return element;
     }
 
     @Override
@@ -103,26 +130,18 @@ public class CircArrayPipe<E> extends AbstractPipe<E> {
             throw new IllegalStateException();
         }
 
-        int preLast = last;
-        if (first == last) {
-            resetPtr();
-        }
-        else {
-            last = (last + capacity() - 1) % capacity();
-        }
-
-        return elements[preLast];
+        tail--;
+        return elements[tail & mask];
     }
 
     @Override
     public int length() {
-        if (first == -1) {
-            return 0;
-        }
-        else {
-            int realLast = last >= first ? last : last + capacity();
-            return realLast - first + 1;
-        }
+        return tail - head;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head == tail;
     }
 
     @Override
@@ -135,29 +154,112 @@ public class CircArrayPipe<E> extends AbstractPipe<E> {
         resetPtr();
     }
 
+    @Override
+    protected void transferAll(Pipe<E> that) {
+        if (!(that instanceof CircArrayPipe)) {
+            super.transferAll(that);
+            return;
+        }
+
+        CircArrayPipe<E> source = (CircArrayPipe<E>) that;
+        int count = source.length();
+
+        // Each chunk ends where the source or this pipe wraps around, so a
+        // transfer takes at most two copies per side.
+        int copied = 0;
+        while (copied < count) {
+            int srcPos = (source.head + copied) & source.mask;
+            int destPos = (tail + copied) & mask;
+            int chunk = Math.min(count - copied,
+                    Math.min(source.elements.length - srcPos,
+                            elements.length - destPos));
+            System.arraycopy(source.elements, srcPos, elements, destPos, chunk);
+            copied += chunk;
+        }
+
+        tail += count;
+        source.resetPtr();
+    }
+
+    @Override
+    public void appendBatch(E[] src, int offset, int length)
+            throws IllegalStateException, IllegalArgumentException,
+            IndexOutOfBoundsException {
+        checkBatch(src, offset, length);
+
+        int start = tail & mask;
+        int chunk = Math.min(length, elements.length - start);
+        System.arraycopy(src, offset, elements, start, chunk);
+        System.arraycopy(src, offset + chunk, elements, 0, length - chunk);
+        tail += length;
+    }
+
+    @Override
+    public int drainFirst(E[] dest, int offset, int maxElements)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkRange(dest, offset, maxElements);
+
+        int count = Math.min(maxElements, length());
+        int start = head & mask;
+        int chunk = Math.min(count, elements.length - start);
+        System.arraycopy(elements, start, dest, offset, chunk);
+        System.arraycopy(elements, 0, dest, offset + chunk, count - chunk);
+        head += count;
+        return count;
+    }
+
+    @Override
+    public int drain(Consumer<? super E> consumer, int maxElements)
+            throws IllegalArgumentException {
+        if (consumer == null || maxElements < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        int count = Math.min(maxElements, length());
+        int end = head + count;
+        // head moves with each element, so a throwing consumer only loses
+        // the elements it has already been given.
+        while (head != end) {
+            E element = elements[head & mask];
+            head++;
+            consumer.accept(element);
+        }
+        return count;
+    }
+
     @Override
     public Iterator<E> iterator() {
         return new PipeIterator();
     }
 
     /**
-     * Reset first and last to -1 when this pipe is empty.
+     * Returns a spliterator that splits the positions of this pipe in halves,
+     * so every split knows its exact size.
+     *
+     * @return an ordered, sized, subsized spliterator over the elements
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new PipeSpliterator(head, tail);
+    }
+
+    /**
+     * Reset head and tail to 0 when this pipe is emptied.
      */
     private void resetPtr() {
-        first = -1;
-        last = -1;
+        head = 0;
+        tail = 0;
     }
 
     /**
      * Pipe iterator
      */
     class PipeIterator implements Iterator<E> {
-        private int ptr = first;
-        private int count = 0;
+        private int ptr = head;
 
         @Override
         public boolean hasNext() {
-            return count != length();
+            return ptr != tail;
         }
 
         @Override
@@ -166,10 +268,68 @@ public class CircArrayPipe<E> extends AbstractPipe<E> {
                 throw new NoSuchElementException();
             }
 
-            count++;
-            int currentPtr = ptr;
-            ptr = (ptr + 1) % capacity();
-            return elements[currentPtr];
+            return elements[ptr++ & mask];
+        }
+    }
+
+    /**
+     * Pipe spliterator over the positions from <code>from</code> up to, not
+     * including, <code>to</code>.
+     */
+    class PipeSpliterator implements Spliterator<E> {
+        private int from;
+        private final int to;
+
+        PipeSpliterator(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            if (from == to) {
+                return false;
+            }
+
+            action.accept(elements[from++ & mask]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+
+            while (from != to) {
+                action.accept(elements[from++ & mask]);
+            }
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            int size = to - from;
+            if (size < 2) {
+                return null;
+            }
+
+            int mid = from + size / 2;
+            Spliterator<E> prefix = new PipeSpliterator(from, mid);
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
         }
     }
 }
@@ -0,0 +1,353 @@
+package boundedpipe;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * <p>
+ * Pipe of <code>double</code> values kept in a circular <code>double[]</code>, so
+ * that adding and removing values never boxes or allocates.
+ * </p>
+ * <p>
+ * It follows the {@link Pipe} contract, except that {@link #first()} and
+ * {@link #last()} throw <code>IllegalStateException</code> on an empty pipe
+ * since there is no null to return.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @version 1.0
+ */
+public class DoublePipe {
+    private final double[] elements;
+    private int head;
+    private int length;
+
+    /**
+     * Constructor
+     *
+     * @param capacity the number of values that this pipe can hold
+     */
+    public DoublePipe(int capacity) {
+        elements = new double[capacity];
+    }
+
+    /**
+     * Returns the first value in this pipe.
+     *
+     * @return the first value in this pipe
+     * @throws IllegalStateException if this pipe is empty
+     */
+    public double first() throws IllegalStateException {
+        if (length == 0) {
+            throw new IllegalStateException();
+        }
+        return elements[head];
+    }
+
+    /**
+     * Returns the last value in this pipe.
+     *
+     * @return the last value in this pipe
+     * @throws IllegalStateException if this pipe is empty
+     */
+    public double last() throws IllegalStateException {
+        if (length == 0) {
+            throw new IllegalStateException();
+        }
+        return elements[index(length - 1)];
+    }
+
+    /**
+     * Adds the specified value to the beginning of this pipe.
+     *
+     * @param value the value to be prepended to this pipe
+     * @throws IllegalStateException if this pipe is full
+     */
+    public void prepend(double value) throws IllegalStateException {
+        if (isFull()) {
+            throw new IllegalStateException();
+        }
+
+        head = head == 0 ? elements.length - 1 : head - 1;
+        elements[head] = value;
+        length++;
+    }
+
+    /**
+     * Adds the specified value to the end of this pipe.
+     *
+     * @param value the value to be appended to this pipe
+     * @throws IllegalStateException if this pipe is full
+     */
+    public void append(double value) throws IllegalStateException {
+        if (isFull()) {
+            throw new IllegalStateException();
+        }
+
+        elements[index(length)] = value;
+        length++;
+    }
+
+    /**
+     * Removes and returns the first value from this pipe.
+     *
+     * @return the first value from this pipe
+     * @throws IllegalStateException if this pipe is empty
+     */
+    public double removeFirst() throws IllegalStateException {
+        if (length == 0) {
+            throw new IllegalStateException();
+        }
+
+        double value = elements[head];
+        head = index(1);
+        length--;
+        return value;
+    }
+
+    /**
+     * Removes and returns the last value from this pipe.
+     *
+     * @return the last value from this pipe
+     * @throws IllegalStateException if this pipe is empty
+     */
+    public double removeLast() throws IllegalStateException {
+        if (length == 0) {
+            throw new IllegalStateException();
+        }
+
+        length--;
+        return elements[index(length)];
+    }
+
+    /**
+     * Adds <code>count</code> values of the specified array, starting at
+     * <code>offset</code>, to the end of this pipe. Nothing is added if they
+     * do not all fit.
+     *
+     * @param src    the array holding the values
+     * @param offset the index of the first value in the array
+     * @param count  the number of values to add
+     * @throws IllegalStateException     if the values do not fit in this pipe
+     * @throws IllegalArgumentException  if the array is null
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    public void appendAll(double[] src, int offset, int count)
+            throws IllegalStateException, IllegalArgumentException,
+            IndexOutOfBoundsException {
+        if (src == null) {
+            throw new IllegalArgumentException();
+        }
+        if (offset < 0 || count < 0 || offset > src.length - count) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (length + count > elements.length) {
+            throw new IllegalStateException();
+        }
+
+        int start = index(length);
+        int chunk = Math.min(count, elements.length - start);
+        System.arraycopy(src, offset, elements, start, chunk);
+        System.arraycopy(src, offset + chunk, elements, 0, count - chunk);
+        length += count;
+    }
+
+    /**
+     * Removes up to <code>max</code> values from the beginning of this pipe
+     * and stores them in the specified array, starting at
+     * <code>offset</code>.
+     *
+     * @param dest   the array receiving the values
+     * @param offset the index in the array of the first value
+     * @param max    the maximum number of values to remove
+     * @return the number of values removed
+     * @throws IllegalArgumentException  if the array is null
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    public int drainFirst(double[] dest, int offset, int max)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        if (dest == null) {
+            throw new IllegalArgumentException();
+        }
+        if (offset < 0 || max < 0 || offset > dest.length - max) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        int count = Math.min(max, length);
+        int chunk = Math.min(count, elements.length - head);
+        System.arraycopy(elements, head, dest, offset, chunk);
+        System.arraycopy(elements, 0, dest, offset + chunk, count - chunk);
+        head = index(count);
+        length -= count;
+        return count;
+    }
+
+    /**
+     * Returns the values of this pipe from first to last.
+     *
+     * @return a new array holding the values of this pipe
+     */
+    public double[] toArray() {
+        double[] result = new double[length];
+        int chunk = Math.min(length, elements.length - head);
+        System.arraycopy(elements, head, result, 0, chunk);
+        System.arraycopy(elements, 0, result, chunk, length - chunk);
+        return result;
+    }
+
+    /**
+     * Returns the number of values in this pipe.
+     *
+     * @return the number of values in this pipe
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the number of values that this pipe can hold.
+     *
+     * @return the number of values that this pipe can hold
+     */
+    public int capacity() {
+        return elements.length;
+    }
+
+    /**
+     * Returns true if the length of this pipe is 0, otherwise false.
+     *
+     * @return true if the length of this pipe is 0, otherwise false
+     */
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * Returns true if the length equals to the capacity of this pipe,
+     * otherwise false.
+     *
+     * @return true if this pipe is full, otherwise false
+     */
+    public boolean isFull() {
+        return length == elements.length;
+    }
+
+    /**
+     * Removes all the values from this pipe.
+     */
+    public void clear() {
+        head = 0;
+        length = 0;
+    }
+
+    /**
+     * Creates and returns a new, empty pipe with the same capacity as this
+     * pipe.
+     *
+     * @return a new, empty pipe with the same capacity as this pipe
+     */
+    public DoublePipe newInstance() {
+        return new DoublePipe(elements.length);
+    }
+
+    /**
+     * Returns a copy of this pipe.
+     *
+     * @return a copy of this pipe
+     */
+    public DoublePipe copy() {
+        DoublePipe result = newInstance();
+        result.appendAll(toArray(), 0, length);
+        return result;
+    }
+
+    /**
+     * Returns an iterator from the first to the last value of this pipe.
+     *
+     * @return an iterator that does not box the values
+     */
+    public PrimitiveIterator.OfDouble iterator() {
+        return new PipeIterator();
+    }
+
+    /**
+     * Returns the position in the array of the value at the specified
+     * distance from the first value.
+     */
+    private int index(int offset) {
+        int i = head + offset;
+        return i >= elements.length ? i - elements.length : i;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof DoublePipe)) {
+            return false;
+        }
+
+        DoublePipe that = (DoublePipe) obj;
+        if (this.capacity() != that.capacity()
+                || this.length != that.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            double a = elements[index(i)];
+            double b = that.elements[that.index(i)];
+            if (Double.doubleToLongBits(a) != Double.doubleToLongBits(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 17;
+        for (int i = 0; i < length; i++) {
+            result = 31 * result + Double.hashCode(elements[index(i)]);
+        }
+        result = 31 * result + capacity();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[");
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(elements[index(i)]);
+        }
+        sb.append("]");
+        sb.append(":");
+        sb.append(capacity());
+        return sb.toString();
+    }
+
+    /**
+     * Pipe iterator
+     */
+    class PipeIterator implements PrimitiveIterator.OfDouble {
+        private int count = 0;
+
+        @Override
+        public boolean hasNext() {
+            return count != length;
+        }
+
+        @Override
+        public double nextDouble() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return elements[index(count++)];
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package boundedpipe;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts elements to and from variable-size binary forms, for
+ * {@link PipeCodec}.
+ * <p>
+ * {@link #write(Object, ByteBuffer)} must put exactly
+ * {@link #size(Object)} bytes with the relative <code>put</code> methods,
+ * and {@link #read(ByteBuffer)} receives a buffer whose remaining bytes are
+ * exactly those of one element.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements serialized
+ * @version 1.0
+ */
+public interface ElementSerializer<E> {
+
+    /**
+     * Returns the number of bytes the specified element is written as.
+     *
+     * @param element the element, never null
+     * @return the number of bytes
+     */
+    int size(E element);
+
+    /**
+     * Writes the specified element at the position of the buffer, which has
+     * at least {@link #size(Object)} bytes remaining.
+     *
+     * @param element the element to be written, never null
+     * @param buffer  the buffer receiving the bytes
+     */
+    void write(E element, ByteBuffer buffer);
+
+    /**
+     * Reads an element from the remaining bytes of the buffer.
+     *
+     * @param buffer the buffer holding the bytes of one element
+     * @return the element, never null
+     */
+    E read(ByteBuffer buffer);
+
+    /**
+     * Returns a serializer writing the fixed-size records of the specified
+     * codec.
+     *
+     * @param codec the codec of the records
+     * @param <T>   the type of elements serialized
+     * @return the serializer
+     * @throws IllegalArgumentException if the codec is null
+     */
+    static <T> ElementSerializer<T> of(RecordCodec<T> codec)
+            throws IllegalArgumentException {
+        if (codec == null) {
+            throw new IllegalArgumentException();
+        }
+
+        return new ElementSerializer<T>() {
+            @Override
+            public int size(T element) {
+                return codec.recordSize();
+            }
+
+            @Override
+            public void write(T element, ByteBuffer buffer) {
+                codec.write(element, buffer, buffer.position());
+                buffer.position(buffer.position() + codec.recordSize());
+            }
+
+            @Override
+            public T read(ByteBuffer buffer) {
+                return codec.read(buffer, buffer.position());
+            }
+        };
+    }
+
+    /**
+     * Returns a serializer writing strings in UTF-8.
+     *
+     * @return the serializer
+     */
+    static ElementSerializer<String> utf8() {
+        return new ElementSerializer<String>() {
+            @Override
+            public int size(String element) {
+                // Counted from the chars, so the string is only encoded once.
+                int size = 0;
+                for (int i = 0; i < element.length(); i++) {
+                    char c = element.charAt(i);
+                    if (c < 0x80) {
+                        size += 1;
+                    }
+                    else if (c < 0x800) {
+                        size += 2;
+                    }
+                    else if (Character.isHighSurrogate(c)
+                            && i + 1 < element.length()
+                            && Character.isLowSurrogate(element.charAt(i + 1))) {
+                        size += 4;
+                        i++;
+                    }
+                    else if (Character.isSurrogate(c)) {
+                        size += 1;
+                    }
+                    else {
+                        size += 3;
+                    }
+                }
+                return size;
+            }
+
+            @Override
+            public void write(String element, ByteBuffer buffer) {
+                buffer.put(element.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public String read(ByteBuffer buffer) {
+                return StandardCharsets.UTF_8.decode(buffer).toString();
+            }
+        };
+    }
+}
@@ -0,0 +1,406 @@
+package boundedpipe;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Pipe that forwards every operation to another pipe and counts them: the
+ * elements added and removed, the adds refused because the pipe was full,
+ * the removes refused because it was empty, and the highest length reached.
+ * </p>
+ * <p>
+ * When residence timing is on, the time at which each element was added is
+ * kept in a {@link LongPipe} alongside the elements, and the time it spent in
+ * the pipe is recorded in a {@link ResidenceHistogram} when it is removed.
+ * Elements removed by {@link #clear()} are not recorded. Elements a wrapped
+ * {@link OverwritingRingPipe} evicts to make room are counted and recorded
+ * as removed.
+ * </p>
+ * <p>
+ * The counters are {@link LongAdder}s and may be read from any thread while
+ * the pipe is in use. The decorator adds no locking of its own: it may be
+ * used from several threads only as far as the wrapped pipe allows, and with
+ * residence timing on, from one thread at a time. The wrapped pipe must not
+ * be used directly once it has been wrapped.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in this pipe
+ * @version 1.0
+ */
+public class InstrumentedPipe<E> extends AbstractPipe<E> {
+
+    private final Pipe<E> pipe;
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder prepended = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+    private final LongAdder fullRejections = new LongAdder();
+    private final LongAdder emptyRejections = new LongAdder();
+    private final LongAccumulator highWaterMark =
+            new LongAccumulator(Math::max, 0);
+    /** Time each element was added, in the order of the elements. */
+    private final LongPipe addedAt;
+    private final ResidenceHistogram residence;
+
+    /**
+     * Constructor. Residence timing is off.
+     *
+     * @param pipe the pipe holding the elements, possibly not empty
+     * @throws IllegalArgumentException if the specified pipe is null
+     */
+    public InstrumentedPipe(Pipe<E> pipe) throws IllegalArgumentException {
+        this(pipe, false);
+    }
+
+    /**
+     * Constructor. Elements already in the wrapped pipe are timed from now.
+     *
+     * @param pipe          the pipe holding the elements, possibly not empty
+     * @param timeResidence whether to record how long elements stay in the
+     *                      pipe
+     * @throws IllegalArgumentException if the specified pipe is null
+     */
+    public InstrumentedPipe(Pipe<E> pipe, boolean timeResidence)
+            throws IllegalArgumentException {
+        super(checkNotNull(pipe).capacity());
+        this.pipe = pipe;
+        highWaterMark.accumulate(pipe.length());
+        if (timeResidence) {
+            addedAt = new LongPipe(pipe.capacity());
+            residence = new ResidenceHistogram();
+            stampAdded(pipe.length());
+        }
+        else {
+            addedAt = null;
+            residence = null;
+        }
+    }
+
+    private static <T> Pipe<T> checkNotNull(Pipe<T> pipe) {
+        if (pipe == null) {
+            throw new IllegalArgumentException();
+        }
+        return pipe;
+    }
+
+    @Override
+    public E first() {
+        return pipe.first();
+    }
+
+    @Override
+    public E last() {
+        return pipe.last();
+    }
+
+    @Override
+    public void prepend(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        int before = pipe.length();
+        try {
+            pipe.prepend(element);
+        }
+        catch (IllegalStateException e) {
+            fullRejections.increment();
+            throw e;
+        }
+        prepended.increment();
+        evicted(before + 1, false);
+        raiseHighWaterMark();
+        if (addedAt != null) {
+            addedAt.prepend(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void append(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        int before = pipe.length();
+        try {
+            pipe.append(element);
+        }
+        catch (IllegalStateException e) {
+            fullRejections.increment();
+            throw e;
+        }
+        appended.increment();
+        evicted(before + 1, true);
+        raiseHighWaterMark();
+        stampAdded(1);
+    }
+
+    @Override
+    public E removeFirst() throws IllegalStateException {
+        E element;
+        try {
+            element = pipe.removeFirst();
+        }
+        catch (IllegalStateException e) {
+            emptyRejections.increment();
+            throw e;
+        }
+        removed.increment();
+        if (addedAt != null) {
+            residence.record(System.nanoTime() - addedAt.removeFirst());
+        }
+        return element;
+    }
+
+    @Override
+    public E removeLast() throws IllegalStateException {
+        E element;
+        try {
+            element = pipe.removeLast();
+        }
+        catch (IllegalStateException e) {
+            emptyRejections.increment();
+            throw e;
+        }
+        removed.increment();
+        if (addedAt != null) {
+            residence.record(System.nanoTime() - addedAt.removeLast());
+        }
+        return element;
+    }
+
+    @Override
+    public int length() {
+        return pipe.length();
+    }
+
+    @Override
+    public void appendAll(Pipe<E> that) throws IllegalStateException,
+            IllegalArgumentException {
+        if (that == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (that == this) {
+            return;
+        }
+
+        int before = pipe.length();
+        int count = that.length();
+        try {
+            pipe.appendAll(that);
+        }
+        catch (IllegalStateException e) {
+            fullRejections.increment();
+            throw e;
+        }
+        appended.add(count);
+        evicted(before + count, true);
+        raiseHighWaterMark();
+        stampAdded(count);
+    }
+
+    @Override
+    public void appendBatch(E[] src, int offset, int length)
+            throws IllegalStateException, IllegalArgumentException,
+            IndexOutOfBoundsException {
+        int before = pipe.length();
+        try {
+            pipe.appendBatch(src, offset, length);
+        }
+        catch (IllegalStateException e) {
+            fullRejections.increment();
+            throw e;
+        }
+        appended.add(length);
+        evicted(before + length, true);
+        raiseHighWaterMark();
+        stampAdded(length);
+    }
+
+    @Override
+    public int drainFirst(E[] dest, int offset, int maxElements)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        int count = pipe.drainFirst(dest, offset, maxElements);
+        removed.add(count);
+        if (addedAt != null) {
+            long now = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                residence.record(now - addedAt.removeFirst());
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int drain(Consumer<? super E> consumer, int maxElements)
+            throws IllegalArgumentException {
+        if (consumer == null) {
+            throw new IllegalArgumentException();
+        }
+
+        // One clock read for the whole batch, like drainFirst.
+        long now = addedAt == null ? 0 : System.nanoTime();
+        return pipe.drain(element -> {
+            removed.increment();
+            if (addedAt != null) {
+                residence.record(now - addedAt.removeFirst());
+            }
+            consumer.accept(element);
+        }, maxElements);
+    }
+
+    @Override
+    public Pipe<E> newInstance() {
+        return new InstrumentedPipe<>(pipe.newInstance(), addedAt != null);
+    }
+
+    @Override
+    public void clear() {
+        pipe.clear();
+        if (addedAt != null) {
+            addedAt.clear();
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return pipe.iterator();
+    }
+
+    /**
+     * Returns the number of elements added at the end, including those added
+     * by {@link #appendAll(Pipe)} and the batch methods.
+     *
+     * @return the number of elements appended
+     */
+    public long appendCount() {
+        return appended.sum();
+    }
+
+    /**
+     * Returns the number of elements added at the beginning.
+     *
+     * @return the number of elements prepended
+     */
+    public long prependCount() {
+        return prepended.sum();
+    }
+
+    /**
+     * Returns the number of elements removed from either end, including
+     * those removed by the drain methods but not by {@link #clear()}.
+     *
+     * @return the number of elements removed
+     */
+    public long removeCount() {
+        return removed.sum();
+    }
+
+    /**
+     * Returns the number of adds refused because this pipe was full.
+     *
+     * @return the number of refused adds
+     */
+    public long fullRejectionCount() {
+        return fullRejections.sum();
+    }
+
+    /**
+     * Returns the number of removes refused because this pipe was empty.
+     *
+     * @return the number of refused removes
+     */
+    public long emptyRejectionCount() {
+        return emptyRejections.sum();
+    }
+
+    /**
+     * Returns the highest length this pipe has reached.
+     *
+     * @return the high-water mark
+     */
+    public int highWaterMark() {
+        return (int) highWaterMark.get();
+    }
+
+    /**
+     * Returns the residence times recorded so far.
+     *
+     * @return a snapshot of the residence times, or null if residence timing
+     * is off
+     */
+    public ResidenceHistogram.Snapshot residenceSnapshot() {
+        return residence == null ? null : residence.snapshot();
+    }
+
+    /**
+     * Resets every counter and the residence times. The high-water mark
+     * restarts from the current length.
+     */
+    public void resetStatistics() {
+        appended.reset();
+        prepended.reset();
+        removed.reset();
+        fullRejections.reset();
+        emptyRejections.reset();
+        highWaterMark.reset();
+        highWaterMark.accumulate(pipe.length());
+        if (residence != null) {
+            residence.reset();
+        }
+    }
+
+    /**
+     * Raises the high-water mark to the current length. The mark is read
+     * first, so the accumulator is only written when the length exceeds it.
+     */
+    private void raiseHighWaterMark() {
+        int length = pipe.length();
+        if (length > highWaterMark.get()) {
+            highWaterMark.accumulate(length);
+        }
+    }
+
+    /**
+     * Counts as removed the elements a wrapped pipe such as
+     * {@link OverwritingRingPipe} evicted to make room, found by comparing
+     * the length it should have with the length it has, and drops their
+     * times from the end opposite to the one added to. A batch larger than
+     * the capacity also evicts some of its own elements, which have no time
+     * yet and are recorded as staying for no time at all. Called before the
+     * times of the added elements are stored.
+     */
+    private void evicted(int expectedLength, boolean atEnd) {
+        int count = expectedLength - pipe.length();
+        if (count <= 0) {
+            return;
+        }
+
+        removed.add(count);
+        if (addedAt != null) {
+            int stamped = Math.min(count, addedAt.length());
+            long now = System.nanoTime();
+            for (int i = 0; i < stamped; i++) {
+                residence.record(now - (atEnd
+                        ? addedAt.removeFirst() : addedAt.removeLast()));
+            }
+            for (int i = stamped; i < count; i++) {
+                residence.record(0);
+            }
+        }
+    }
+
+    /**
+     * Appends the current time for the specified number of elements just
+     * added at the end, or for as many of them as the wrapped pipe kept.
+     */
+    private void stampAdded(int count) {
+        if (addedAt == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        int kept = Math.min(count, pipe.length() - addedAt.length());
+        for (int i = 0; i < kept; i++) {
+            addedAt.append(now);
+        }
+    }
+}
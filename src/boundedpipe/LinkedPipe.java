@@ -1,20 +1,32 @@
 package boundedpipe;
 
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 
 /**
- * Pipe implemented by linked list.
+ * Pipe implemented by linked list. Indexed access walks from the nearer end,
+ * so it takes time proportional to the distance from that end, and
+ * {@link #binarySearch(Object, Comparator)} is a linear scan.
  *
  * @author pohan(pohan)
  * @param <E> the type of elements in this pipe
  * @version 1.0
  */
-public class LinkedPipe<E> extends AbstractPipe<E> {
+public class LinkedPipe<E> extends AbstractPipe<E>
+        implements RandomAccessPipe<E> {
+    private static final int BATCH_UNIT = 1 << 10;
+    private static final int MAX_BATCH = 1 << 25;
 
     private Node first;
     private Node last;
     private int length;
+    private final boolean recycleNodes;
+    private Node spare;
+    private int spareCount;
 
     /**
      * Constructor
@@ -22,10 +34,23 @@ public class LinkedPipe<E> extends AbstractPipe<E> {
      * @param capacity the number of element that this pipe can hold
      */
     public LinkedPipe(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * Constructor. When recycling, removed nodes are kept in a free list of
+     * at most <code>capacity</code> nodes and reused by later adds, so a pipe
+     * whose length stays bounded stops allocating.
+     *
+     * @param capacity     the number of element that this pipe can hold
+     * @param recycleNodes whether removed nodes are reused
+     */
+    public LinkedPipe(int capacity, boolean recycleNodes) {
         super(capacity);
         first = null;
         last = null;
         length = 0;
+        this.recycleNodes = recycleNodes;
     }
 
     @Override
@@ -38,6 +63,88 @@ public class LinkedPipe<E> extends AbstractPipe<E> {
         return last == null ? null : last.content;
     }
 
+    @Override
+    public E get(int index) throws IndexOutOfBoundsException {
+        return nodeAt(index).content;
+    }
+
+    @Override
+    public E set(int index, E element) throws IllegalArgumentException,
+            IndexOutOfBoundsException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        Node node = nodeAt(index);
+        E previous = node.content;
+        node.content = element;
+        return previous;
+    }
+
+    /**
+     * Searches this pipe for the specified key by walking from the first
+     * node until an element is not less than the key. A binary search would
+     * walk up to half the list for every probe, so the scan, which compares
+     * more elements but walks the list once, takes less time here.
+     *
+     * @param key        the element to be searched for
+     * @param comparator the order of the elements, or null for their
+     *                   natural ordering
+     * @return the index of the key if it is found, otherwise
+     * <code>(-(insertion point) - 1)</code>
+     * @throws IllegalArgumentException if the key is null
+     * @throws ClassCastException       if the comparator is null and the
+     *                                  elements are not mutually comparable
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int binarySearch(E key, Comparator<? super E> comparator)
+            throws IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException();
+        }
+
+        Comparator<? super E> order = comparator != null
+                ? comparator : (a, b) -> ((Comparable<? super E>) a).compareTo(b);
+        int index = 0;
+        for (Node node = first; node != null; node = node.next) {
+            int cmp = order.compare(node.content, key);
+            if (cmp == 0) {
+                return index;
+            }
+            if (cmp > 0) {
+                break;
+            }
+            index++;
+        }
+        return -(index + 1);
+    }
+
+    /**
+     * Returns the node at the specified position, walking from the first
+     * node for the first half and from the last node for the second half.
+     */
+    private Node nodeAt(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        Node node;
+        if (index < length / 2) {
+            node = first;
+            for (int i = 0; i < index; i++) {
+                node = node.next;
+            }
+        }
+        else {
+            node = last;
+            for (int i = length - 1; i > index; i--) {
+                node = node.prev;
+            }
+        }
+        return node;
+    }
+
     @Override
     public void prepend(E element) throws IllegalStateException,
             IllegalArgumentException {
@@ -49,7 +156,7 @@ public class LinkedPipe<E> extends AbstractPipe<E> {
             throw new IllegalStateException();
         }
 
-        Node newNode = new Node();
+        Node newNode = obtainNode();
         newNode.content = element;
         newNode.prev = null;
 
@@ -76,7 +183,7 @@ public class LinkedPipe<E> extends AbstractPipe<E> {
             throw new IllegalStateException();
         }
 
-        Node newNode = new Node();
+        Node newNode = obtainNode();
         newNode.content = element;
         newNode.next = null;
 
@@ -108,7 +215,9 @@ public class LinkedPipe<E> extends AbstractPipe<E> {
             length--;
         }
 
-        return removeNode.content;
+        E content = removeNode.content;
+        recycle(removeNode);
+        return content;
     }
 
     @Override
@@ -127,7 +236,9 @@ public class LinkedPipe<E> extends AbstractPipe<E> {
             length--;
         }
 
-        return removeNode.content;
+        E content = removeNode.content;
+        recycle(removeNode);
+        return content;
     }
 
     @Override
@@ -137,14 +248,158 @@ public class LinkedPipe<E> extends AbstractPipe<E> {
 
     @Override
     public Pipe<E> newInstance() {
-        return new LinkedPipe<>(capacity());
+        return new LinkedPipe<>(capacity(), recycleNodes);
     }
 
     @Override
     public void clear() {
+        if (recycleNodes) {
+            Node node = first;
+            while (node != null) {
+                Node next = node.next;
+                recycle(node);
+                node = next;
+            }
+        }
         reset();
     }
 
+    @Override
+    public void appendBatch(E[] src, int offset, int length)
+            throws IllegalStateException, IllegalArgumentException,
+            IndexOutOfBoundsException {
+        checkBatch(src, offset, length);
+        if (length == 0) {
+            return;
+        }
+
+        // Build the chain on the side, then link it in one step.
+        Node chainFirst = obtainNode();
+        chainFirst.content = src[offset];
+        chainFirst.prev = null;
+        Node chainLast = chainFirst;
+        for (int i = 1; i < length; i++) {
+            Node node = obtainNode();
+            node.content = src[offset + i];
+            node.prev = chainLast;
+            chainLast.next = node;
+            chainLast = node;
+        }
+        chainLast.next = null;
+
+        if (last == null) {
+            first = chainFirst;
+        }
+        else {
+            last.next = chainFirst;
+            chainFirst.prev = last;
+        }
+        last = chainLast;
+        this.length += length;
+    }
+
+    @Override
+    public int drainFirst(E[] dest, int offset, int maxElements)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkRange(dest, offset, maxElements);
+
+        int count = Math.min(maxElements, length);
+        Node node = first;
+        for (int i = 0; i < count; i++) {
+            Node next = node.next;
+            dest[offset + i] = node.content;
+            recycle(node);
+            node = next;
+        }
+        cutFirst(node, count);
+        return count;
+    }
+
+    @Override
+    public int drain(Consumer<? super E> consumer, int maxElements)
+            throws IllegalArgumentException {
+        if (consumer == null || maxElements < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        int count = Math.min(maxElements, length);
+        for (int i = 0; i < count; i++) {
+            Node node = first;
+            // Unlink before calling out, so a throwing consumer only loses
+            // the elements it has already been given.
+            cutFirst(node.next, 1);
+            E content = node.content;
+            recycle(node);
+            consumer.accept(content);
+        }
+        return count;
+    }
+
+    /**
+     * Makes the specified node the first one after the given number of
+     * nodes have been taken from the beginning.
+     */
+    private void cutFirst(Node newFirst, int removed) {
+        if (newFirst == null) {
+            reset();
+            return;
+        }
+
+        newFirst.prev = null;
+        first = newFirst;
+        length -= removed;
+    }
+
+    /**
+     * Returns a node from the free list, or a new node if it is empty.
+     */
+    private Node obtainNode() {
+        if (spare == null) {
+            return new Node();
+        }
+
+        Node node = spare;
+        spare = node.next;
+        spareCount--;
+        return node;
+    }
+
+    /**
+     * Puts a removed node on the free list when recycling and there is room.
+     * The content is cleared so the node does not keep the element alive.
+     */
+    private void recycle(Node node) {
+        if (!recycleNodes || spareCount >= capacity()) {
+            return;
+        }
+
+        node.content = null;
+        node.prev = null;
+        node.next = spare;
+        spare = node;
+        spareCount++;
+    }
+
+    @Override
+    protected void transferAll(Pipe<E> that) {
+        if (!(that instanceof LinkedPipe)) {
+            super.transferAll(that);
+            return;
+        }
+
+        LinkedPipe<E> source = (LinkedPipe<E>) that;
+        if (last == null) {
+            first = source.first;
+        }
+        else {
+            last.next = source.first;
+            source.first.prev = last;
+        }
+        last = source.last;
+        length += source.length;
+        source.reset();
+    }
+
     /**
      * Reset first and last to -1 when this pipe is empty.
      */
@@ -159,6 +414,18 @@ public class LinkedPipe<E> extends AbstractPipe<E> {
         return new PipeIterator();
     }
 
+    /**
+     * Returns a spliterator that splits off growing batches of nodes into
+     * arrays, since a linked list cannot be split in the middle without
+     * walking to it.
+     *
+     * @return an ordered, sized spliterator over the elements
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new PipeSpliterator();
+    }
+
     /**
      * Pipe iterator
      */
@@ -182,6 +449,75 @@ public class LinkedPipe<E> extends AbstractPipe<E> {
         }
     }
 
+    /**
+     * Pipe spliterator. Each split copies the next batch of elements into an
+     * array, and each batch is larger than the previous one, as in
+     * <code>java.util.LinkedList</code>.
+     */
+    class PipeSpliterator implements Spliterator<E> {
+        private Node current = first;
+        private int remaining = length;
+        private int batch = 0;
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            if (remaining == 0) {
+                return false;
+            }
+
+            E content = current.content;
+            current = current.next;
+            remaining--;
+            action.accept(content);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+
+            while (remaining > 0) {
+                E content = current.content;
+                current = current.next;
+                remaining--;
+                action.accept(content);
+            }
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            if (remaining < 2) {
+                return null;
+            }
+
+            batch = Math.min(batch + BATCH_UNIT, MAX_BATCH);
+            int n = Math.min(batch, remaining);
+            Object[] array = new Object[n];
+            for (int i = 0; i < n; i++) {
+                array[i] = current.content;
+                current = current.next;
+            }
+            remaining -= n;
+            return Spliterators.spliterator(array, 0, n,
+                    ORDERED | NONNULL);
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | NONNULL;
+        }
+    }
+
     /**
      * Linked list node.
      */
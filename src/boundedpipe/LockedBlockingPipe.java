@@ -0,0 +1,455 @@
+package boundedpipe;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Blocking pipe that guards another pipe with a single lock. Threads waiting
+ * to add park on a not-full condition and threads waiting to remove park on
+ * a not-empty condition, so each change wakes only a thread that can make
+ * progress.
+ * </p>
+ * <p>
+ * The wrapped pipe must not be used directly once it has been wrapped.
+ * Iterators work on a copy taken under the lock.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in this pipe
+ * @version 1.0
+ */
+public class LockedBlockingPipe<E> extends AbstractPipe<E>
+        implements BlockingPipe<E> {
+    /** Taken first when two pipes have the same identity hash code. */
+    private static final ReentrantLock TIE_LOCK = new ReentrantLock();
+
+    private final Pipe<E> pipe;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Constructor. The elements are kept in a {@link CircArrayPipe}.
+     *
+     * @param capacity the number of element that this pipe can hold
+     */
+    public LockedBlockingPipe(int capacity) {
+        this(new CircArrayPipe<>(capacity));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param pipe the pipe holding the elements, possibly not empty
+     * @throws IllegalArgumentException if the specified pipe is null
+     */
+    public LockedBlockingPipe(Pipe<E> pipe) throws IllegalArgumentException {
+        super(checkNotNull(pipe).capacity());
+        this.pipe = pipe;
+    }
+
+    private static <T> Pipe<T> checkNotNull(Pipe<T> pipe) {
+        if (pipe == null) {
+            throw new IllegalArgumentException();
+        }
+        return pipe;
+    }
+
+    @Override
+    public E first() {
+        lock.lock();
+        try {
+            return pipe.first();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E last() {
+        lock.lock();
+        try {
+            return pipe.last();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void prepend(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        lock.lock();
+        try {
+            pipe.prepend(element);
+            notEmpty.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void append(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        lock.lock();
+        try {
+            pipe.append(element);
+            notEmpty.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E removeFirst() throws IllegalStateException {
+        lock.lock();
+        try {
+            E element = pipe.removeFirst();
+            notFull.signal();
+            return element;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E removeLast() throws IllegalStateException {
+        lock.lock();
+        try {
+            E element = pipe.removeLast();
+            notFull.signal();
+            return element;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putFirst(E element) throws InterruptedException,
+            IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        lock.lockInterruptibly();
+        try {
+            while (pipe.isFull()) {
+                notFull.await();
+            }
+            pipe.prepend(element);
+            notEmpty.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putLast(E element) throws InterruptedException,
+            IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        lock.lockInterruptibly();
+        try {
+            while (pipe.isFull()) {
+                notFull.await();
+            }
+            pipe.append(element);
+            notEmpty.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E takeFirst() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (pipe.isEmpty()) {
+                notEmpty.await();
+            }
+            E element = pipe.removeFirst();
+            notFull.signal();
+            return element;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E takeLast() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (pipe.isEmpty()) {
+                notEmpty.await();
+            }
+            E element = pipe.removeLast();
+            notFull.signal();
+            return element;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offerFirst(E element, long timeout, TimeUnit unit)
+            throws InterruptedException, IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (pipe.isFull()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            pipe.prepend(element);
+            notEmpty.signal();
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offerLast(E element, long timeout, TimeUnit unit)
+            throws InterruptedException, IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (pipe.isFull()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            pipe.append(element);
+            notEmpty.signal();
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E pollFirst(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (pipe.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            E element = pipe.removeFirst();
+            notFull.signal();
+            return element;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E pollLast(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (pipe.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            E element = pipe.removeLast();
+            notFull.signal();
+            return element;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int length() {
+        lock.lock();
+        try {
+            return pipe.length();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves all the elements of the specified pipe to the end of this pipe.
+     * When the specified pipe is another <code>LockedBlockingPipe</code>,
+     * both locks are taken in an order fixed by identity hash code, so two
+     * pipes appended to each other at the same time cannot deadlock.
+     *
+     * @param that the pipe to be appended to this pipe
+     * @throws IllegalStateException    if the elements of the specified pipe
+     *                                  do not fit in this pipe
+     * @throws IllegalArgumentException if the specified pipe is null
+     */
+    @Override
+    public void appendAll(Pipe<E> that) throws IllegalStateException,
+            IllegalArgumentException {
+        if (that == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (that == this) {
+            return;
+        }
+
+        if (!(that instanceof LockedBlockingPipe)) {
+            lock.lock();
+            try {
+                pipe.appendAll(that);
+                notEmpty.signalAll();
+            }
+            finally {
+                lock.unlock();
+            }
+            return;
+        }
+
+        LockedBlockingPipe<E> other = (LockedBlockingPipe<E>) that;
+        int order = Integer.compare(System.identityHashCode(this),
+                System.identityHashCode(other));
+        ReentrantLock first = order <= 0 ? lock : other.lock;
+        ReentrantLock second = order <= 0 ? other.lock : lock;
+        if (order == 0) {
+            TIE_LOCK.lock();
+        }
+        first.lock();
+        second.lock();
+        try {
+            pipe.appendAll(other.pipe);
+            notEmpty.signalAll();
+            other.notFull.signalAll();
+        }
+        finally {
+            second.unlock();
+            first.unlock();
+            if (order == 0) {
+                TIE_LOCK.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void appendBatch(E[] src, int offset, int length)
+            throws IllegalStateException, IllegalArgumentException,
+            IndexOutOfBoundsException {
+        lock.lock();
+        try {
+            pipe.appendBatch(src, offset, length);
+            notEmpty.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainFirst(E[] dest, int offset, int maxElements)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        lock.lock();
+        try {
+            int count = pipe.drainFirst(dest, offset, maxElements);
+            notFull.signalAll();
+            return count;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes up to <code>maxElements</code> elements and passes them to the
+     * specified consumer. The consumer runs while the lock is held.
+     *
+     * @param consumer    the consumer receiving the elements
+     * @param maxElements the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws IllegalArgumentException if the consumer is null or
+     *                                  maxElements is negative
+     */
+    @Override
+    public int drain(Consumer<? super E> consumer, int maxElements)
+            throws IllegalArgumentException {
+        lock.lock();
+        try {
+            return pipe.drain(consumer, maxElements);
+        }
+        finally {
+            notFull.signalAll();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Pipe<E> newInstance() {
+        return new LockedBlockingPipe<>(pipe.newInstance());
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            pipe.clear();
+            notFull.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        lock.lock();
+        try {
+            return pipe.copy().iterator();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
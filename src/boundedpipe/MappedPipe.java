@@ -0,0 +1,155 @@
+package boundedpipe;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>
+ * Pipe whose records live in a memory-mapped file, so that its contents
+ * survive a restart of the process.
+ * </p>
+ * <p>
+ * The file starts with a header holding a magic number, the capacity, the
+ * record size, and the slot of the first record and the length packed in one
+ * long, followed by the records in the circular layout of
+ * {@link OffHeapPipe}. Opening an existing file resumes from the positions in
+ * its header. A record is always written before the header that makes it
+ * visible.
+ * </p>
+ * <p>
+ * The {@link SyncPolicy} decides when changes are forced to the storage
+ * device; {@link #force()} can be called at any time, for instance from a
+ * timer, to bound the loss on a crash with {@link SyncPolicy#NONE}.
+ * {@link #newInstance()} and {@link #copy()} return pipes that are not
+ * backed by a file.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in this pipe
+ * @version 1.0
+ */
+public class MappedPipe<E> extends OffHeapPipe<E> {
+
+    /**
+     * When changes are forced to the storage device.
+     */
+    public enum SyncPolicy {
+        /** Leave it to the operating system, or to {@link #force()}. */
+        NONE,
+        /** Force after every change, before the change method returns. */
+        EVERY_CHANGE
+    }
+
+    private static final int MAGIC = 0x50495045;
+    private static final int HEADER_SIZE = 32;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int RECORD_SIZE_OFFSET = 8;
+    private static final int POSITIONS_OFFSET = 16;
+
+    private final MappedByteBuffer mapped;
+    private final SyncPolicy policy;
+
+    /**
+     * Constructor. Opens the specified file, creating it if it does not
+     * exist.
+     *
+     * @param file     the file holding the pipe
+     * @param capacity the number of element that this pipe can hold
+     * @param codec    the codec of the records
+     * @param policy   when changes are forced to the storage device
+     * @throws IOException              if the file cannot be mapped, or
+     *                                  holds a pipe of another capacity or
+     *                                  record size
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public MappedPipe(Path file, int capacity, RecordCodec<E> codec,
+            SyncPolicy policy) throws IOException, IllegalArgumentException {
+        this(map(file, capacity, codec), capacity, codec, policy);
+    }
+
+    private MappedPipe(MappedByteBuffer mapped, int capacity,
+            RecordCodec<E> codec, SyncPolicy policy) {
+        super(capacity, codec,
+                mapped.slice(HEADER_SIZE, mapped.capacity() - HEADER_SIZE),
+                (int) (mapped.getLong(POSITIONS_OFFSET) >>> 32),
+                (int) mapped.getLong(POSITIONS_OFFSET));
+        if (policy == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.mapped = mapped;
+        this.policy = policy;
+    }
+
+    /**
+     * Maps the specified file and writes a fresh header if it is new.
+     */
+    private static MappedByteBuffer map(Path file, int capacity,
+            RecordCodec<?> codec) throws IOException {
+        if (file == null || codec == null || codec.recordSize() <= 0
+                || capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        long size = HEADER_SIZE + (long) capacity * codec.recordSize();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            boolean isNew = channel.size() == 0;
+            if (!isNew && channel.size() != size) {
+                throw new IOException("File size does not match the pipe: "
+                        + file);
+            }
+
+            MappedByteBuffer mapped =
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (isNew) {
+                mapped.putInt(CAPACITY_OFFSET, capacity);
+                mapped.putInt(RECORD_SIZE_OFFSET, codec.recordSize());
+                mapped.putLong(POSITIONS_OFFSET, 0);
+                mapped.putInt(MAGIC_OFFSET, MAGIC);
+                mapped.force();
+            }
+            else if (mapped.getInt(MAGIC_OFFSET) != MAGIC
+                    || mapped.getInt(CAPACITY_OFFSET) != capacity
+                    || mapped.getInt(RECORD_SIZE_OFFSET) != codec.recordSize()) {
+                throw new IOException("File does not hold a matching pipe: "
+                        + file);
+            }
+            return mapped;
+        }
+    }
+
+    @Override
+    protected void positionsChanged(int head, int length) {
+        // One aligned store, so the head and the length never disagree.
+        mapped.putLong(POSITIONS_OFFSET, ((long) head << 32) | length);
+        if (policy == SyncPolicy.EVERY_CHANGE) {
+            mapped.force();
+        }
+    }
+
+    /**
+     * Forces all the changes made so far to the storage device.
+     */
+    public void force() {
+        mapped.force();
+    }
+
+    /**
+     * Returns the sync policy of this pipe.
+     *
+     * @return the sync policy of this pipe
+     */
+    public SyncPolicy syncPolicy() {
+        return policy;
+    }
+}
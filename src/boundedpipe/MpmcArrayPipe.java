@@ -0,0 +1,379 @@
+package boundedpipe;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Lock-free pipe for any number of producer and consumer threads.
+ * </p>
+ * <p>
+ * Every slot of the circular array carries a sequence number telling which
+ * pass over the array it is ready for. A producer claims position
+ * <code>p</code> by moving <code>tail</code> from <code>p</code> to
+ * <code>p + 1</code> with a compare-and-set once the slot's sequence is
+ * <code>p</code>, stores the element and releases the sequence as
+ * <code>p + 1</code>. A consumer claims <code>head</code> the same way once
+ * the sequence is <code>p + 1</code>, takes the element and releases the
+ * slot for the next pass over the array.
+ * </p>
+ * <p>
+ * As in {@link CircArrayPipe}, the array is rounded up to a power of two and
+ * a position is turned into an index with a mask. Since the array may then
+ * have more slots than the capacity, a producer also checks the capacity
+ * against its last view of <code>head</code>, shared by the producers, and
+ * only reads <code>head</code> again when that view says the pipe is full.
+ * The producers' fields and <code>head</code> are kept on separate cache
+ * lines by unused <code>long</code> fields around them; HotSpot lays out
+ * fields of the same size in the order they are declared.
+ * </p>
+ * <p>
+ * Only {@link #append(Object)}/{@link #offer(Object)} and
+ * {@link #removeFirst()}/{@link #poll()} may be called concurrently.
+ * {@link #prepend(Object)} and {@link #removeLast()} are not supported, and
+ * {@link #first()}, {@link #last()}, {@link #length()} and iteration only
+ * give a snapshot while other threads are running. A batch added with
+ * <code>appendBatch</code> or {@link #appendAll(Pipe)} is only
+ * all-or-nothing when no other producer is running; otherwise it may fail
+ * part way with <code>IllegalStateException</code>, and the elements of the
+ * pipe passed to <code>appendAll</code> that were not added stay in it. The
+ * capacity must be at least 2, since with a single slot a filled sequence
+ * would look free.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in this pipe
+ * @version 1.0
+ */
+public class MpmcArrayPipe<E> extends AbstractPipe<E> {
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+    private static final VarHandle HEAD_CACHE;
+    private static final VarHandle SEQUENCE =
+            MethodHandles.arrayElementVarHandle(long[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(MpmcArrayPipe.class, "head", long.class);
+            TAIL = lookup.findVarHandle(MpmcArrayPipe.class, "tail", long.class);
+            HEAD_CACHE = lookup.findVarHandle(MpmcArrayPipe.class,
+                    "headCache", long.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final private Object[] elements;
+    final private long[] sequences;
+    final private int mask;
+
+    private long p00, p01, p02, p03, p04, p05, p06;
+    private volatile long tail;
+    /** The producers' last view of head. */
+    private long headCache;
+    private long p10, p11, p12, p13, p14, p15, p16;
+    private volatile long head;
+    private long p20, p21, p22, p23, p24, p25, p26;
+
+    /**
+     * Constructor
+     *
+     * @param capacity the number of element that this pipe can hold
+     * @throws IllegalArgumentException if the capacity is less than 2 or
+     *                                  greater than 2^30
+     */
+    public MpmcArrayPipe(int capacity) throws IllegalArgumentException {
+        super(capacity);
+        if (capacity < 2 || capacity > CircArrayPipe.MAX_STORAGE) {
+            throw new IllegalArgumentException();
+        }
+
+        int storage = Integer.highestOneBit(capacity - 1) << 1;
+        elements = new Object[storage];
+        sequences = new long[storage];
+        for (int i = 0; i < storage; i++) {
+            sequences[i] = i;
+        }
+        mask = storage - 1;
+    }
+
+    /**
+     * Adds the specified element to the end of this pipe if it is not full.
+     *
+     * @param element the element to be appended to this pipe
+     * @return true if the element was added, false if this pipe is full
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    public boolean offer(E element) throws IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        long pos = tail;
+        while (true) {
+            // head only moves forward, so a position found free here is still
+            // free if the compare-and-set below claims it.
+            long h = (long) HEAD_CACHE.getOpaque(this);
+            if (pos - h >= capacity()) {
+                h = head;
+                HEAD_CACHE.setOpaque(this, h);
+                if (pos - h >= capacity()) {
+                    return false;
+                }
+            }
+
+            int index = (int) (pos & mask);
+            long seq = (long) SEQUENCE.getAcquire(sequences, index);
+            long diff = seq - pos;
+            if (diff == 0) {
+                if (TAIL.compareAndSet(this, pos, pos + 1)) {
+                    elements[index] = element;
+                    SEQUENCE.setRelease(sequences, index, pos + 1);
+                    return true;
+                }
+                pos = tail;
+            }
+            else if (diff < 0) {
+                return false;
+            }
+            else {
+                pos = tail;
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the first element of this pipe, or returns null if
+     * this pipe is empty.
+     *
+     * @return the first element of this pipe, or null if it is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long pos = head;
+        while (true) {
+            int index = (int) (pos & mask);
+            long seq = (long) SEQUENCE.getAcquire(sequences, index);
+            long diff = seq - (pos + 1);
+            if (diff == 0) {
+                if (HEAD.compareAndSet(this, pos, pos + 1)) {
+                    E element = (E) elements[index];
+                    elements[index] = null;
+                    SEQUENCE.setRelease(sequences, index, pos + mask + 1);
+                    return element;
+                }
+                pos = head;
+            }
+            else if (diff < 0) {
+                return null;
+            }
+            else {
+                pos = head;
+            }
+        }
+    }
+
+    /**
+     * Moves the elements one at a time, removing each from the specified pipe
+     * only once it has been added, so that an element that no longer fits
+     * because other producers filled this pipe stays where it was.
+     *
+     * @param that the pipe to be drained into this pipe
+     * @throws IllegalStateException if other producers filled this pipe
+     */
+    @Override
+    protected void transferAll(Pipe<E> that) throws IllegalStateException {
+        E element;
+        while ((element = that.first()) != null) {
+            if (!offer(element)) {
+                throw new IllegalStateException();
+            }
+            that.removeFirst();
+        }
+    }
+
+    @Override
+    public int drainFirst(E[] dest, int offset, int maxElements)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkRange(dest, offset, maxElements);
+
+        int count = 0;
+        E element;
+        while (count < maxElements && (element = poll()) != null) {
+            dest[offset + count] = element;
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int drain(Consumer<? super E> consumer, int maxElements)
+            throws IllegalArgumentException {
+        if (consumer == null || maxElements < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        int count = 0;
+        E element;
+        while (count < maxElements && (element = poll()) != null) {
+            count++;
+            consumer.accept(element);
+        }
+        return count;
+    }
+
+    @Override
+    public E first() {
+        return elementAt(head);
+    }
+
+    @Override
+    public E last() {
+        return elementAt(tail - 1);
+    }
+
+    /**
+     * Returns the element at the specified position if it has been published
+     * and not yet taken, otherwise null.
+     *
+     * @param pos the position counted from the creation of this pipe
+     * @return the element at the position, or null
+     */
+    @SuppressWarnings("unchecked")
+    private E elementAt(long pos) {
+        if (pos < 0) {
+            return null;
+        }
+
+        int index = (int) (pos & mask);
+        if ((long) SEQUENCE.getAcquire(sequences, index) != pos + 1) {
+            return null;
+        }
+        return (E) elements[index];
+    }
+
+    /**
+     * Not supported: producers only claim positions at the end.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void prepend(E element) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void append(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        if (!offer(element)) {
+            throw new IllegalStateException();
+        }
+    }
+
+    @Override
+    public E removeFirst() throws IllegalStateException {
+        E element = poll();
+        if (element == null) {
+            throw new IllegalStateException();
+        }
+        return element;
+    }
+
+    /**
+     * Not supported: consumers only claim positions at the beginning.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public E removeLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int length() {
+        while (true) {
+            long h = head;
+            long t = tail;
+            if (h == head) {
+                return (int) Math.max(0, Math.min(capacity(), t - h));
+            }
+        }
+    }
+
+    @Override
+    public Pipe<E> newInstance() {
+        return new MpmcArrayPipe<>(capacity());
+    }
+
+    @Override
+    public void clear() {
+        while (poll() != null) {
+            // drop the element
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new PipeIterator();
+    }
+
+    /**
+     * Returns a spliterator that does not claim a size, since elements may be
+     * taken while it runs.
+     *
+     * @return an ordered spliterator over the elements
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /**
+     * Pipe iterator over the positions between head and tail at the time it
+     * was created. Elements taken in the meantime are skipped.
+     */
+    class PipeIterator implements Iterator<E> {
+        private long ptr = head;
+        private final long end = tail;
+        private E nextElement = advance();
+
+        /**
+         * Moves ptr past the next element still in this pipe.
+         *
+         * @return the element, or null if there is none
+         */
+        private E advance() {
+            while (ptr < end) {
+                E element = elementAt(ptr++);
+                if (element != null) {
+                    return element;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextElement != null;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            E current = nextElement;
+            nextElement = advance();
+            return current;
+        }
+    }
+}
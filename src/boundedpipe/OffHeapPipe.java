@@ -0,0 +1,304 @@
+package boundedpipe;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * Pipe that stores its elements outside the Java heap as fixed-size records
+ * in a direct {@link ByteBuffer}, using the same circular layout as
+ * {@link CircArrayPipe}.
+ * </p>
+ * <p>
+ * Elements are encoded when added and decoded when removed or iterated. The
+ * record accessors ({@link #getInt(int, int)}, {@link #getLong(int, int)},
+ * {@link #getDouble(int, int)} and {@link #record(int)}) read a slot in place
+ * without decoding it, and {@link #discardFirst()} drops the first record
+ * without decoding it.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in this pipe
+ * @version 1.0
+ */
+public class OffHeapPipe<E> extends AbstractPipe<E> {
+    private final RecordCodec<E> codec;
+    private final int recordSize;
+    private final ByteBuffer buffer;
+    private int head;
+    private int length;
+
+    /**
+     * Constructor
+     *
+     * @param capacity the number of element that this pipe can hold
+     * @param codec    the codec of the records
+     * @throws IllegalArgumentException if the codec is null or the records do
+     *                                  not fit in a single buffer
+     */
+    public OffHeapPipe(int capacity, RecordCodec<E> codec)
+            throws IllegalArgumentException {
+        super(capacity);
+        if (codec == null || codec.recordSize() <= 0
+                || (long) capacity * codec.recordSize() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+
+        this.codec = codec;
+        this.recordSize = codec.recordSize();
+        this.buffer = ByteBuffer.allocateDirect(capacity * recordSize);
+    }
+
+    /**
+     * Constructor for subclasses that supply the memory of the records,
+     * possibly already holding records.
+     *
+     * @param capacity the number of element that this pipe can hold
+     * @param codec    the codec of the records
+     * @param buffer   the buffer of <code>capacity * recordSize</code> bytes
+     * @param head     the slot of the first record
+     * @param length   the number of records already in the buffer
+     * @throws IllegalArgumentException if the arguments do not describe a
+     *                                  valid pipe
+     */
+    protected OffHeapPipe(int capacity, RecordCodec<E> codec,
+            ByteBuffer buffer, int head, int length)
+            throws IllegalArgumentException {
+        super(capacity);
+        if (codec == null || buffer == null || codec.recordSize() <= 0
+                || buffer.capacity() != (long) capacity * codec.recordSize()
+                || head < 0 || head >= capacity
+                || length < 0 || length > capacity) {
+            throw new IllegalArgumentException();
+        }
+
+        this.codec = codec;
+        this.recordSize = codec.recordSize();
+        this.buffer = buffer;
+        this.head = head;
+        this.length = length;
+    }
+
+    @Override
+    public E first() {
+        return length == 0 ? null : codec.read(buffer, offset(0));
+    }
+
+    @Override
+    public E last() {
+        return length == 0 ? null : codec.read(buffer, offset(length - 1));
+    }
+
+    @Override
+    public void prepend(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (isFull()) {
+            throw new IllegalStateException();
+        }
+
+        int slot = head == 0 ? capacity() - 1 : head - 1;
+        codec.write(element, buffer, slot * recordSize);
+        head = slot;
+        length++;
+        positionsChanged(head, length);
+    }
+
+    @Override
+    public void append(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (isFull()) {
+            throw new IllegalStateException();
+        }
+
+        codec.write(element, buffer, offset(length));
+        length++;
+        positionsChanged(head, length);
+    }
+
+    @Override
+    public E removeFirst() throws IllegalStateException {
+        E element = first();
+        discardFirst();
+        return element;
+    }
+
+    @Override
+    public E removeLast() throws IllegalStateException {
+        if (isEmpty()) {
+            throw new IllegalStateException();
+        }
+
+        E element = codec.read(buffer, offset(length - 1));
+        length--;
+        positionsChanged(head, length);
+        return element;
+    }
+
+    /**
+     * Removes the first record from this pipe without decoding it.
+     *
+     * @throws IllegalStateException if this pipe is empty
+     */
+    public void discardFirst() throws IllegalStateException {
+        if (isEmpty()) {
+            throw new IllegalStateException();
+        }
+
+        head = head + 1 == capacity() ? 0 : head + 1;
+        length--;
+        positionsChanged(head, length);
+    }
+
+    /**
+     * Reads an int from the record at the specified index without decoding
+     * the record.
+     *
+     * @param index the position of the record, 0 being the first
+     * @param field the offset of the int within the record
+     * @return the int value
+     * @throws IndexOutOfBoundsException if there is no record at the index or
+     *                                   the field is outside the record
+     */
+    public int getInt(int index, int field) throws IndexOutOfBoundsException {
+        return buffer.getInt(fieldOffset(index, field, Integer.BYTES));
+    }
+
+    /**
+     * Reads a long from the record at the specified index without decoding
+     * the record.
+     *
+     * @param index the position of the record, 0 being the first
+     * @param field the offset of the long within the record
+     * @return the long value
+     * @throws IndexOutOfBoundsException if there is no record at the index or
+     *                                   the field is outside the record
+     */
+    public long getLong(int index, int field) throws IndexOutOfBoundsException {
+        return buffer.getLong(fieldOffset(index, field, Long.BYTES));
+    }
+
+    /**
+     * Reads a double from the record at the specified index without decoding
+     * the record.
+     *
+     * @param index the position of the record, 0 being the first
+     * @param field the offset of the double within the record
+     * @return the double value
+     * @throws IndexOutOfBoundsException if there is no record at the index or
+     *                                   the field is outside the record
+     */
+    public double getDouble(int index, int field)
+            throws IndexOutOfBoundsException {
+        return buffer.getDouble(fieldOffset(index, field, Double.BYTES));
+    }
+
+    /**
+     * Returns a read-only view of the record at the specified index. The view
+     * shares the memory of this pipe, so it changes when the slot is reused.
+     *
+     * @param index the position of the record, 0 being the first
+     * @return a read-only buffer of <code>recordSize</code> bytes
+     * @throws IndexOutOfBoundsException if there is no record at the index
+     */
+    public ByteBuffer record(int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        return buffer.slice(offset(index), recordSize).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the number of bytes of every record.
+     *
+     * @return the number of bytes of every record
+     */
+    public int recordSize() {
+        return recordSize;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public Pipe<E> newInstance() {
+        return new OffHeapPipe<>(capacity(), codec);
+    }
+
+    @Override
+    public void clear() {
+        head = 0;
+        length = 0;
+        positionsChanged(head, length);
+    }
+
+    /**
+     * Called after every change of the first slot or of the length, once the
+     * records have been written. Does nothing by default.
+     *
+     * @param head   the slot of the first record
+     * @param length the number of records
+     */
+    protected void positionsChanged(int head, int length) {
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new PipeIterator();
+    }
+
+    /**
+     * Returns the offset in the buffer of the record at the specified
+     * distance from the first record.
+     */
+    private int offset(int index) {
+        int slot = head + index;
+        if (slot >= capacity()) {
+            slot -= capacity();
+        }
+        return slot * recordSize;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private int fieldOffset(int index, int field, int size) {
+        checkIndex(index);
+        if (field < 0 || field > recordSize - size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return offset(index) + field;
+    }
+
+    /**
+     * Pipe iterator
+     */
+    class PipeIterator implements Iterator<E> {
+        private int count = 0;
+
+        @Override
+        public boolean hasNext() {
+            return count != length;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return codec.read(buffer, offset(count++));
+        }
+    }
+}
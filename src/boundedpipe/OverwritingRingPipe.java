@@ -0,0 +1,175 @@
+package boundedpipe;
+
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Circular array pipe that never refuses an element. Appending to a full pipe
+ * evicts the first element and prepending to a full pipe evicts the last one,
+ * which suits buffers that keep the most recent N events.
+ * </p>
+ * <p>
+ * The evicted element is returned by {@link #appendEvicting(Object)} and
+ * {@link #prependEvicting(Object)}, and is also passed to the eviction
+ * listener given to the constructor, if any, so that it can be recycled.
+ * The listener runs after the new element has been added.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in this pipe
+ * @version 1.0
+ */
+public class OverwritingRingPipe<E> extends CircArrayPipe<E> {
+
+    private final Consumer<? super E> evictionListener;
+
+    /**
+     * Constructor
+     *
+     * @param capacity the number of element that this pipe can hold
+     * @throws IllegalArgumentException if the capacity is less than 1 or
+     *                                  greater than 2^30
+     */
+    public OverwritingRingPipe(int capacity) throws IllegalArgumentException {
+        this(capacity, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param capacity         the number of element that this pipe can hold
+     * @param evictionListener receives every evicted element, may be null
+     * @throws IllegalArgumentException if the capacity is less than 1 or
+     *                                  greater than 2^30
+     */
+    public OverwritingRingPipe(int capacity,
+            Consumer<? super E> evictionListener)
+            throws IllegalArgumentException {
+        super(capacity);
+        if (capacity < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Adds the specified element to the end of this pipe, evicting the first
+     * element if this pipe is full.
+     *
+     * @param element the element to be appended to this pipe
+     * @return the evicted element, or null if nothing was evicted
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    public E appendEvicting(E element) throws IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        E evicted = isFull() ? super.removeFirst() : null;
+        super.append(element);
+        evicted(evicted);
+        return evicted;
+    }
+
+    /**
+     * Adds the specified element to the beginning of this pipe, evicting the
+     * last element if this pipe is full.
+     *
+     * @param element the element to be prepended to this pipe
+     * @return the evicted element, or null if nothing was evicted
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    public E prependEvicting(E element) throws IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        E evicted = isFull() ? super.removeLast() : null;
+        super.prepend(element);
+        evicted(evicted);
+        return evicted;
+    }
+
+    /**
+     * Adds the specified element to the end of this pipe, evicting the first
+     * element if this pipe is full.
+     *
+     * @param element the element to be appended to this pipe
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    @Override
+    public void append(E element) throws IllegalArgumentException {
+        appendEvicting(element);
+    }
+
+    /**
+     * Adds the specified element to the beginning of this pipe, evicting the
+     * last element if this pipe is full.
+     *
+     * @param element the element to be prepended to this pipe
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    @Override
+    public void prepend(E element) throws IllegalArgumentException {
+        prependEvicting(element);
+    }
+
+    /**
+     * Moves all the elements of the specified pipe to the end of this pipe,
+     * evicting as many first elements as needed to make room.
+     *
+     * @param that the pipe to be drained into this pipe
+     * @throws IllegalArgumentException if the specified pipe is null
+     */
+    @Override
+    public void appendAll(Pipe<E> that) throws IllegalArgumentException {
+        if (that == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (that == this) {
+            return;
+        }
+
+        while (!that.isEmpty()) {
+            appendEvicting(that.removeFirst());
+        }
+    }
+
+    /**
+     * Appends a range of the specified array, evicting as many first elements
+     * as needed to make room. Nothing is added if an element is null.
+     *
+     * @param src    the array holding the elements
+     * @param offset the index in the array of the first element
+     * @param length the number of elements to append
+     * @throws IllegalArgumentException  if the array or an element is null
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    @Override
+    public void appendBatch(E[] src, int offset, int length)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkRange(src, offset, length);
+
+        for (int i = offset; i < offset + length; i++) {
+            if (src[i] == null) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        for (int i = offset; i < offset + length; i++) {
+            appendEvicting(src[i]);
+        }
+    }
+
+    @Override
+    public Pipe<E> newInstance() {
+        return new OverwritingRingPipe<>(capacity(), evictionListener);
+    }
+
+    private void evicted(E element) {
+        if (element != null && evictionListener != null) {
+            evictionListener.accept(element);
+        }
+    }
+}
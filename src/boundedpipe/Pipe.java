@@ -1,5 +1,10 @@
 package boundedpipe;
 
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * <p>
  * A bounded, double ended data structure. Elements in the pipe may not be null.
@@ -222,7 +227,8 @@ public interface Pipe<E> extends Iterable<E> {
 
     /**
      * <p>
-     * Adds all the elements of the specified pipe to the end of this pipe.
+     * Removes all the elements of the specified pipe and adds them, in order,
+     * to the end of this pipe. Nothing is moved if they do not all fit.
      * </p>
      * <p>
      * Example:<br>
@@ -230,13 +236,171 @@ public interface Pipe<E> extends Iterable<E> {
      * <br>
      * <code>p.appendAll(p1)</code><br>
      * { <code>p = [A, B, C, D, E]:6</code> <em>and</em>
-     * <code>p1 = [D, E]:6</code> }<br>
+     * <code>p1 = []:6</code> }<br>
      * </p>
      *
      * @param that the pipe to be appended to this pipe
+     * @throws IllegalStateException    if the elements of the specified pipe
+     *                                  do not fit in this pipe
+     * @throws IllegalArgumentException if the specified pipe is null
+     */
+    void appendAll(Pipe<E> that) throws IllegalStateException,
+            IllegalArgumentException;
+
+
+    /**
+     * <p>
+     * Adds <code>length</code> elements of the specified array, starting at
+     * <code>offset</code>, in order to the end of this pipe. Nothing is added
+     * if they do not all fit or one of them is null.
+     * </p>
+     * <p>
+     * Example:<br>
+     * { <code>p = [A, B, C]:6</code> <em>and</em>
+     * <code>a = [X, D, E]</code> }<br>
+     * <code>p.appendBatch(a, 1, 2)</code><br>
+     * { <code>p = [A, B, C, D, E]:6</code> }<br>
+     * </p>
+     *
+     * @param src    the array holding the elements
+     * @param offset the index in the array of the first element
+     * @param length the number of elements to add
+     * @throws IllegalStateException     if the elements do not fit in this
+     *                                   pipe
+     * @throws IllegalArgumentException  if the array or one of the elements
+     *                                   is null
+     * @throws IndexOutOfBoundsException if <code>offset</code> and
+     *                                   <code>length</code> do not describe a
+     *                                   range of the array
+     */
+    void appendBatch(E[] src, int offset, int length)
+            throws IllegalStateException, IllegalArgumentException,
+            IndexOutOfBoundsException;
+
+    /**
+     * <p>
+     * Adds all the elements of the specified collection, in its iteration
+     * order, to the end of this pipe. Nothing is added if they do not all fit
+     * or one of them is null.
+     * </p>
+     * <p>
+     * Example:<br>
+     * { <code>p = [A, B, C]:6</code> <em>and</em> <code>c = [D, E]</code> }
+     * <br>
+     * <code>p.appendBatch(c)</code><br>
+     * { <code>p = [A, B, C, D, E]:6</code> <em>and</em>
+     * <code>c = [D, E]</code> }<br>
+     * </p>
+     *
+     * @param collection the collection holding the elements
+     * @throws IllegalStateException    if the elements do not fit in this pipe
+     * @throws IllegalArgumentException if the collection or one of its
+     *                                  elements is null
+     */
+    void appendBatch(Collection<? extends E> collection)
+            throws IllegalStateException, IllegalArgumentException;
+
+    /**
+     * <p>
+     * Removes up to <code>maxElements</code> elements from the beginning of
+     * this pipe and adds them, in order, to the specified collection.
+     * </p>
+     * <p>
+     * Example:<br>
+     * { <code>p = [A, B, C]:6</code> <em>and</em> <code>c = []</code> }<br>
+     * <code>n = p.drainTo(c, 2)</code><br>
+     * { <code>p = [C]:6</code> <em>and</em> <code>c = [A, B]</code>
+     * <em>and</em> <code>n = 2</code> }<br>
+     * </p>
+     *
+     * @param collection  the collection receiving the elements
+     * @param maxElements the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws IllegalArgumentException if the collection is null or this
+     *                                  pipe, or maxElements is negative
+     */
+    int drainTo(Collection<? super E> collection, int maxElements)
+            throws IllegalArgumentException;
+
+    /**
+     * <p>
+     * Removes up to <code>maxElements</code> elements from the beginning of
+     * this pipe and stores them, in order, in the specified array starting at
+     * <code>offset</code>.
+     * </p>
+     * <p>
+     * Example:<br>
+     * { <code>p = [A, B, C]:6</code> <em>and</em>
+     * <code>a = [_, _, _, _]</code> }<br>
+     * <code>n = p.drainFirst(a, 1, 4)</code><br>
+     * { <code>p = []:6</code> <em>and</em> <code>a = [_, A, B, C]</code>
+     * <em>and</em> <code>n = 3</code> }<br>
+     * </p>
+     *
+     * @param dest        the array receiving the elements
+     * @param offset      the index in the array of the first element
+     * @param maxElements the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws IllegalArgumentException  if the array is null
+     * @throws IndexOutOfBoundsException if <code>offset</code> and
+     *                                   <code>maxElements</code> do not
+     *                                   describe a range of the array
      */
-    void appendAll(Pipe<E> that);
+    int drainFirst(E[] dest, int offset, int maxElements)
+            throws IllegalArgumentException, IndexOutOfBoundsException;
 
+    /**
+     * <p>
+     * Removes up to <code>maxElements</code> elements from the beginning of
+     * this pipe and passes them, in order, to the specified consumer.
+     * </p>
+     * <p>
+     * Example:<br>
+     * { <code>p = [A, B, C]:6</code> }<br>
+     * <code>n = p.drain(System.out::print, 5)</code><br>
+     * { <code>p = []:6</code> <em>and</em> <code>n = 3</code>
+     * <em>and</em> <code>ABC</code> was printed }<br>
+     * </p>
+     *
+     * @param consumer    the consumer receiving the elements
+     * @param maxElements the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws IllegalArgumentException if the consumer is null or
+     *                                  maxElements is negative
+     */
+    int drain(Consumer<? super E> consumer, int maxElements)
+            throws IllegalArgumentException;
+
+    /**
+     * <p>
+     * Returns a sequential stream of the elements of this pipe, from the
+     * first to the last.
+     * </p>
+     * <p>
+     * Example:<br>
+     * { <code>p = [A, B, C]:6</code> }<br>
+     * <code>s = p.stream().collect(Collectors.joining())</code><br>
+     * { <code>p = [A, B, C]:6</code> <em>and</em> <code>s = ABC</code> }<br>
+     * </p>
+     *
+     * @return a sequential stream of the elements of this pipe
+     */
+    default Stream<E> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * <p>
+     * Returns a possibly parallel stream of the elements of this pipe. How
+     * well it splits depends on the {@link #spliterator()} of the
+     * implementation.
+     * </p>
+     *
+     * @return a possibly parallel stream of the elements of this pipe
+     */
+    default Stream<E> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
 
     /**
      * <p>
@@ -0,0 +1,268 @@
+package boundedpipe;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * <p>
+ * Builds the pipe implementation that best fits the described workload.
+ * </p>
+ * <p>
+ * Example:<br>
+ * <code>Pipe&lt;String&gt; p = new PipeBuilder&lt;String&gt;(1 &lt;&lt; 20)
+ * .expectedOccupancy(0.01).build()</code>
+ * </p>
+ * <p>
+ * The choice is made in this order:
+ * </p>
+ * <ul>
+ * <li>a persistent pipe is a {@link MappedPipe}, an off-heap pipe an
+ * {@link OffHeapPipe};</li>
+ * <li>otherwise a pipe that is mostly full, or small enough that allocating
+ * all its slots up front is cheap, is a {@link CircArrayPipe}, and a large
+ * pipe that is expected to stay mostly empty is a {@link SegmentedPipe},
+ * whose memory follows its length;</li>
+ * <li>the thread model then picks a {@link SpscArrayPipe}, a
+ * {@link MpmcArrayPipe}, or wraps the pipe chosen above in a
+ * {@link LockedBlockingPipe}.</li>
+ * </ul>
+ * <p>
+ * In adaptive mode the single-threaded choice between the array and the
+ * segmented pipe is left to an {@link AdaptivePipe}, which samples the
+ * length and moves the elements when the occupancy changes. The primitive
+ * pipes do not implement {@link Pipe} and have their own build methods.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in the pipe
+ * @version 1.0
+ */
+public class PipeBuilder<E> {
+
+    /**
+     * How the pipe is shared between threads.
+     */
+    public enum ThreadModel {
+        /** Used by one thread at a time. */
+        SINGLE_THREAD,
+        /** One producer thread appends and one consumer thread removes. */
+        SPSC,
+        /** Many producer threads append and many consumer threads remove. */
+        MPMC,
+        /** Shared by any threads, which wait when the pipe is full or empty. */
+        BLOCKING
+    }
+
+    /** Pipes up to this capacity always use an array. */
+    static final int SMALL_CAPACITY = 1 << 12;
+    /** Occupancy from which a large pipe uses an array. */
+    static final double ARRAY_OCCUPANCY = 0.5;
+
+    private final int capacity;
+    private double expectedOccupancy = 1.0;
+    private ThreadModel threadModel = ThreadModel.SINGLE_THREAD;
+    private RecordCodec<E> codec;
+    private Path file;
+    private MappedPipe.SyncPolicy syncPolicy;
+    private boolean adaptive;
+
+    /**
+     * Constructor
+     *
+     * @param capacity the number of element that the pipe can hold
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public PipeBuilder(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Sets the fraction of the capacity the pipe is expected to hold on
+     * average. The default is 1, a pipe that runs full.
+     *
+     * @param occupancy the expected occupancy, greater than 0 and at most 1
+     * @return this builder
+     * @throws IllegalArgumentException if the occupancy is out of range
+     */
+    public PipeBuilder<E> expectedOccupancy(double occupancy)
+            throws IllegalArgumentException {
+        if (!(occupancy > 0 && occupancy <= 1)) {
+            throw new IllegalArgumentException();
+        }
+        this.expectedOccupancy = occupancy;
+        return this;
+    }
+
+    /**
+     * Sets how the pipe is shared between threads. The default is
+     * {@link ThreadModel#SINGLE_THREAD}.
+     *
+     * @param threadModel the thread model
+     * @return this builder
+     * @throws IllegalArgumentException if the thread model is null
+     */
+    public PipeBuilder<E> threadModel(ThreadModel threadModel)
+            throws IllegalArgumentException {
+        if (threadModel == null) {
+            throw new IllegalArgumentException();
+        }
+        this.threadModel = threadModel;
+        return this;
+    }
+
+    /**
+     * Keeps the elements outside the heap, encoded by the specified codec.
+     *
+     * @param codec the codec of the records
+     * @return this builder
+     * @throws IllegalArgumentException if the codec is null
+     */
+    public PipeBuilder<E> offHeap(RecordCodec<E> codec)
+            throws IllegalArgumentException {
+        if (codec == null) {
+            throw new IllegalArgumentException();
+        }
+        this.codec = codec;
+        this.file = null;
+        this.syncPolicy = null;
+        return this;
+    }
+
+    /**
+     * Keeps the elements in the specified file, encoded by the specified
+     * codec, so that they survive a restart.
+     *
+     * @param file   the file holding the pipe
+     * @param codec  the codec of the records
+     * @param policy when changes are forced to the storage device
+     * @return this builder
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public PipeBuilder<E> persistent(Path file, RecordCodec<E> codec,
+            MappedPipe.SyncPolicy policy) throws IllegalArgumentException {
+        if (file == null || codec == null || policy == null) {
+            throw new IllegalArgumentException();
+        }
+        this.codec = codec;
+        this.file = file;
+        this.syncPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Lets a single-threaded, on-heap pipe change its representation when
+     * the sampled occupancy moves away from the expected one.
+     *
+     * @param adaptive whether to build an {@link AdaptivePipe}
+     * @return this builder
+     */
+    public PipeBuilder<E> adaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        return this;
+    }
+
+    /**
+     * Builds a new, empty pipe, or opens the persistent one.
+     *
+     * @return the pipe
+     * @throws IllegalStateException if the pipe is adaptive but not
+     *                               single-threaded and on the heap, or if
+     *                               the thread model needs a capacity the
+     *                               lock-free pipes do not support
+     * @throws UncheckedIOException  if the file of a persistent pipe cannot
+     *                               be opened
+     */
+    public Pipe<E> build() throws IllegalStateException, UncheckedIOException {
+        if (adaptive && (threadModel != ThreadModel.SINGLE_THREAD
+                || codec != null)) {
+            throw new IllegalStateException();
+        }
+
+        switch (threadModel) {
+            case SPSC:
+                checkOnHeap();
+                return new SpscArrayPipe<>(capacity);
+            case MPMC:
+                checkOnHeap();
+                if (capacity < 2) {
+                    throw new IllegalStateException();
+                }
+                return new MpmcArrayPipe<>(capacity);
+            case BLOCKING:
+                return new LockedBlockingPipe<>(buildSingleThreaded());
+            default:
+                if (adaptive) {
+                    return new AdaptivePipe<>(capacity, expectedOccupancy);
+                }
+                return buildSingleThreaded();
+        }
+    }
+
+    /**
+     * Builds a new, empty pipe of <code>int</code> values.
+     *
+     * @return the pipe
+     */
+    public IntPipe buildIntPipe() {
+        return new IntPipe(capacity);
+    }
+
+    /**
+     * Builds a new, empty pipe of <code>long</code> values.
+     *
+     * @return the pipe
+     */
+    public LongPipe buildLongPipe() {
+        return new LongPipe(capacity);
+    }
+
+    /**
+     * Builds a new, empty pipe of <code>double</code> values.
+     *
+     * @return the pipe
+     */
+    public DoublePipe buildDoublePipe() {
+        return new DoublePipe(capacity);
+    }
+
+    private Pipe<E> buildSingleThreaded() {
+        if (file != null) {
+            try {
+                return new MappedPipe<>(file, capacity, codec, syncPolicy);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        if (codec != null) {
+            return new OffHeapPipe<>(capacity, codec);
+        }
+
+        return prefersArray(capacity, expectedOccupancy)
+                ? new CircArrayPipe<>(capacity)
+                : new SegmentedPipe<>(capacity);
+    }
+
+    private void checkOnHeap() throws IllegalStateException {
+        if (codec != null) {
+            throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * Returns whether a single-threaded pipe of the specified capacity and
+     * occupancy is better served by a {@link CircArrayPipe} than by a
+     * {@link SegmentedPipe}.
+     */
+    static boolean prefersArray(int capacity, double occupancy) {
+        if (capacity > CircArrayPipe.MAX_STORAGE) {
+            return false;
+        }
+        return capacity <= SMALL_CAPACITY || occupancy >= ARRAY_OCCUPANCY;
+    }
+}
@@ -0,0 +1,268 @@
+package boundedpipe;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntFunction;
+
+/**
+ * <p>
+ * Writes pipes to and reads them from byte channels in a compact binary
+ * form: a magic number, the capacity and the length, followed by each
+ * element as its size and the bytes of its {@link ElementSerializer}, all
+ * as big-endian ints.
+ * </p>
+ * <p>
+ * Elements are serialized straight from the iterator of the pipe into a
+ * direct buffer that is written whenever it is full, and read back straight
+ * into the target pipe, so no copy of the pipe is made on either side. The
+ * direct buffers are kept in a pool and reused by later calls; an element
+ * larger than a buffer goes through a buffer of its own. Reading takes no
+ * byte past the end of the pipe from the channel, so several pipes, or a
+ * pipe and other data, can follow each other on one channel; since the
+ * size of each element is only known once its size is read, the channel is
+ * read once per size and once per element. A codec may be shared between
+ * threads. The channels should be in blocking mode.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in the pipes
+ * @version 1.0
+ */
+public class PipeCodec<E> {
+    private static final int MAGIC = 0x50495043;
+    private static final int HEADER_SIZE = 12;
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_POOLED = 8;
+
+    private final ElementSerializer<E> serializer;
+    private final int bufferSize;
+    private final ConcurrentLinkedQueue<ByteBuffer> pool =
+            new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor
+     *
+     * @param serializer the serializer of the elements
+     * @throws IllegalArgumentException if the serializer is null
+     */
+    public PipeCodec(ElementSerializer<E> serializer)
+            throws IllegalArgumentException {
+        this(serializer, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param serializer the serializer of the elements
+     * @param bufferSize the number of bytes of each pooled buffer
+     * @throws IllegalArgumentException if the serializer is null or the
+     *                                  buffer cannot hold the header
+     */
+    public PipeCodec(ElementSerializer<E> serializer, int bufferSize)
+            throws IllegalArgumentException {
+        if (serializer == null || bufferSize < HEADER_SIZE) {
+            throw new IllegalArgumentException();
+        }
+        this.serializer = serializer;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Writes the capacity and the elements of the specified pipe, from the
+     * first to the last. The pipe is not changed.
+     *
+     * @param pipe    the pipe to be written
+     * @param channel the channel receiving the bytes
+     * @throws IOException              if the channel fails
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public void write(Pipe<E> pipe, WritableByteChannel channel)
+            throws IOException, IllegalArgumentException {
+        if (pipe == null || channel == null) {
+            throw new IllegalArgumentException();
+        }
+
+        ByteBuffer buffer = acquire();
+        try {
+            int length = pipe.length();
+            buffer.putInt(MAGIC).putInt(pipe.capacity()).putInt(length);
+
+            Iterator<E> iterator = pipe.iterator();
+            for (int i = 0; i < length; i++) {
+                E element = iterator.next();
+                int size = serializer.size(element);
+                if (buffer.remaining() < Integer.BYTES + size) {
+                    flush(buffer, channel);
+                }
+
+                if (buffer.remaining() >= Integer.BYTES + size) {
+                    buffer.putInt(size);
+                    writeElement(element, size, buffer);
+                }
+                else {
+                    // Larger than a pooled buffer: write it on its own.
+                    ByteBuffer large =
+                            ByteBuffer.allocate(Integer.BYTES + size);
+                    large.putInt(size);
+                    writeElement(element, size, large);
+                    flush(large, channel);
+                }
+            }
+            flush(buffer, channel);
+        }
+        finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * Reads a pipe written by {@link #write(Pipe, WritableByteChannel)} into
+     * a new {@link CircArrayPipe}.
+     *
+     * @param channel the channel supplying the bytes
+     * @return the pipe
+     * @throws IOException              if the channel fails or the bytes are
+     *                                  not a pipe
+     * @throws IllegalArgumentException if the channel is null
+     */
+    public Pipe<E> read(ReadableByteChannel channel)
+            throws IOException, IllegalArgumentException {
+        return read(channel, CircArrayPipe::new);
+    }
+
+    /**
+     * Reads a pipe written by {@link #write(Pipe, WritableByteChannel)},
+     * appending the elements to the empty pipe the specified factory creates
+     * for the capacity read.
+     *
+     * @param channel the channel supplying the bytes
+     * @param factory creates an empty pipe of the specified capacity
+     * @return the pipe
+     * @throws IOException              if the channel fails or the bytes are
+     *                                  not a pipe
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public Pipe<E> read(ReadableByteChannel channel,
+            IntFunction<? extends Pipe<E>> factory)
+            throws IOException, IllegalArgumentException {
+        if (channel == null || factory == null) {
+            throw new IllegalArgumentException();
+        }
+
+        ByteBuffer buffer = acquire();
+        try {
+            buffer.flip();
+            fill(buffer, channel, HEADER_SIZE);
+            if (buffer.getInt() != MAGIC) {
+                throw new StreamCorruptedException();
+            }
+            int capacity = buffer.getInt();
+            int length = buffer.getInt();
+            if (capacity <= 0 || length < 0 || length > capacity) {
+                throw new StreamCorruptedException();
+            }
+
+            Pipe<E> pipe = factory.apply(capacity);
+            for (int i = 0; i < length; i++) {
+                fill(buffer, channel, Integer.BYTES);
+                int size = buffer.getInt();
+                if (size < 0) {
+                    throw new StreamCorruptedException();
+                }
+                pipe.append(readElement(buffer, channel, size));
+            }
+            return pipe;
+        }
+        finally {
+            release(buffer);
+        }
+    }
+
+    private void writeElement(E element, int size, ByteBuffer buffer)
+            throws IOException {
+        int start = buffer.position();
+        serializer.write(element, buffer);
+        int written = buffer.position() - start;
+        if (written != size) {
+            throw new IOException("serializer wrote " + written
+                    + " bytes instead of " + size);
+        }
+    }
+
+    /**
+     * Reads the element of the specified size from the buffer, which is in
+     * read mode, refilling it from the channel as needed.
+     */
+    private E readElement(ByteBuffer buffer, ReadableByteChannel channel,
+            int size) throws IOException {
+        ByteBuffer bytes;
+        if (size <= buffer.capacity()) {
+            fill(buffer, channel, size);
+            bytes = buffer.slice();
+            bytes.limit(size);
+            buffer.position(buffer.position() + size);
+        }
+        else {
+            bytes = ByteBuffer.allocate(size);
+            bytes.put(buffer);
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes) < 0) {
+                    throw new EOFException();
+                }
+            }
+            bytes.flip();
+        }
+        return serializer.read(bytes);
+    }
+
+    /**
+     * Writes the bytes put in the buffer and empties it for writing.
+     */
+    private static void flush(ByteBuffer buffer, WritableByteChannel channel)
+            throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads from the channel until the buffer, in read mode, has at least
+     * the specified number of bytes remaining. No more bytes are read than
+     * are missing, so the channel is left at the first byte not needed yet.
+     */
+    private static void fill(ByteBuffer buffer, ReadableByteChannel channel,
+            int count) throws IOException {
+        if (buffer.remaining() >= count) {
+            return;
+        }
+
+        buffer.compact();
+        buffer.limit(count);
+        while (buffer.position() < count) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+    }
+
+    private ByteBuffer acquire() {
+        ByteBuffer buffer = pool.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    private void release(ByteBuffer buffer) {
+        buffer.clear();
+        if (pool.size() < MAX_POOLED) {
+            pool.offer(buffer);
+        }
+    }
+}
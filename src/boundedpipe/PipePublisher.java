@@ -0,0 +1,282 @@
+package boundedpipe;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Publisher of the elements offered to a bounded pipe, to a single
+ * subscriber.
+ * </p>
+ * <p>
+ * {@link #offer(Object)} refuses elements while the pipe is full, so the
+ * producer is throttled by the free capacity instead of filling an unbounded
+ * buffer, and the subscriber's demand decides how fast the pipe empties.
+ * Elements are emitted by whichever thread finds work to do, offering or
+ * requesting, in batches drained from the first element of the pipe; the
+ * emitting thread is chosen with an atomic counter, so no lock is taken per
+ * element and the subscriber is never called concurrently.
+ * </p>
+ * <p>
+ * The pipe must allow one thread to add while another removes. The default
+ * {@link SpscArrayPipe} allows one producer thread at a time; pass an
+ * {@link MpmcArrayPipe} for several. After {@link #close()} or
+ * {@link #closeExceptionally(Throwable)}, the elements still in the pipe are
+ * emitted before the terminal signal, including those of offers that were
+ * already past the check for <code>close</code>: the terminal signal waits
+ * until no offer is in flight. If the subscriber throws, the subscription is
+ * cancelled and the exception reaches the thread that was emitting. As the
+ * <code>Flow</code> contract
+ * requires, null subscribers and elements raise
+ * <code>NullPointerException</code>.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements published
+ * @version 1.0
+ */
+public class PipePublisher<E> implements Flow.Publisher<E> {
+    private static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final Pipe<E> pipe;
+    private final int batchSize;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final AtomicInteger wip = new AtomicInteger();
+    /** The number of offers between their check for close and their emit. */
+    private final AtomicInteger offering = new AtomicInteger();
+    private final AtomicLong requested = new AtomicLong();
+    private volatile Flow.Subscriber<? super E> subscriber;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+    private boolean terminated;
+
+    /**
+     * Constructor. The elements are kept in a {@link SpscArrayPipe}, so one
+     * thread at a time may offer.
+     *
+     * @param capacity the number of element that the pipe can hold
+     */
+    public PipePublisher(int capacity) {
+        this(new SpscArrayPipe<>(capacity), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param pipe      the empty pipe buffering the elements
+     * @param batchSize the maximum number of elements drained at once
+     * @throws IllegalArgumentException if the pipe is null or not empty, or
+     *                                  the batch size is not positive
+     */
+    public PipePublisher(Pipe<E> pipe, int batchSize)
+            throws IllegalArgumentException {
+        if (pipe == null || !pipe.isEmpty() || batchSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.pipe = pipe;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Adds the specified element to the end of the pipe unless it is full,
+     * and emits what the subscriber has asked for.
+     *
+     * @param element the element to be published
+     * @return true if the element was added, false if the pipe is full
+     * @throws NullPointerException  if the specified element is null
+     * @throws IllegalStateException if this publisher is closed
+     */
+    public boolean offer(E element) throws IllegalStateException {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+
+        // Counted before close is checked, so that a close in between
+        // cannot signal completion before the element is emitted.
+        offering.incrementAndGet();
+        boolean added = false;
+        try {
+            if (closed) {
+                throw new IllegalStateException();
+            }
+
+            if (!pipe.isFull()) {
+                try {
+                    pipe.append(element);
+                    added = true;
+                }
+                catch (IllegalStateException e) {
+                    // Another producer took the last free slot.
+                }
+            }
+        }
+        finally {
+            offering.decrementAndGet();
+            emit();
+        }
+        return added;
+    }
+
+    /**
+     * Returns the number of elements the pipe can still take.
+     *
+     * @return the free capacity
+     */
+    public int remainingCapacity() {
+        return pipe.capacity() - pipe.length();
+    }
+
+    /**
+     * Completes the subscriber once the elements in the pipe are emitted.
+     */
+    public void close() {
+        closed = true;
+        emit();
+    }
+
+    /**
+     * Fails the subscriber with the specified error once the elements in the
+     * pipe are emitted.
+     *
+     * @param error the error passed to the subscriber
+     * @throws NullPointerException if the error is null
+     */
+    public void closeExceptionally(Throwable error) {
+        if (error == null) {
+            throw new NullPointerException();
+        }
+
+        failure = error;
+        closed = true;
+        emit();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super E> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException();
+        }
+
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException(
+                    "only one subscriber is supported"));
+            return;
+        }
+
+        subscriber.onSubscribe(new PipeSubscription());
+        this.subscriber = subscriber;
+        emit();
+    }
+
+    /**
+     * Runs the emission loop unless another thread is running it, in which
+     * case that thread goes round once more.
+     */
+    private void emit() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+            Flow.Subscriber<? super E> s = subscriber;
+            if (s != null && !cancelled && !terminated) {
+                try {
+                    emitTo(s);
+                }
+                catch (RuntimeException | Error e) {
+                    // The subscriber threw and nothing more will be emitted,
+                    // but later calls must not find the loop still taken.
+                    cancelled = true;
+                    wip.set(0);
+                    throw e;
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void emitTo(Flow.Subscriber<? super E> s) {
+        Throwable invalid = invalidRequest;
+        if (invalid != null) {
+            terminated = true;
+            s.onError(invalid);
+            return;
+        }
+
+        long demand = requested.get();
+        long emitted = 0;
+        while (emitted < demand && !cancelled) {
+            int count = pipe.drain(s::onNext,
+                    (int) Math.min(demand - emitted, batchSize));
+            if (count == 0) {
+                break;
+            }
+            emitted += count;
+        }
+
+        if (emitted > 0 && demand != Long.MAX_VALUE) {
+            requested.addAndGet(-emitted);
+        }
+
+        // offering is read before the pipe, so an element added by an offer
+        // that has finished is seen here.
+        if (closed && !cancelled && offering.get() == 0 && pipe.isEmpty()) {
+            terminated = true;
+            Throwable error = failure;
+            if (error != null) {
+                s.onError(error);
+            }
+            else {
+                s.onComplete();
+            }
+        }
+    }
+
+    /**
+     * Subscription of the single subscriber.
+     */
+    class PipeSubscription implements Flow.Subscription {
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // Signalled from the emission loop, so that it cannot
+                // overlap an onNext.
+                invalidRequest = new IllegalArgumentException(
+                        "non-positive request: " + n);
+                emit();
+                return;
+            }
+
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                if (current == Long.MAX_VALUE) {
+                    return;
+                }
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!requested.compareAndSet(current, next));
+            emit();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package boundedpipe;
+
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Subscriber that buffers the elements it receives in a bounded pipe, from
+ * which a consumer thread takes them at its own pace.
+ * </p>
+ * <p>
+ * The outstanding demand never exceeds the free capacity of the pipe: the
+ * subscriber first requests the whole capacity, and then requests again the
+ * elements the consumer has taken, once they add up to a replenish batch, so
+ * the upstream publisher is throttled by the consumer and a request is not
+ * made for each element. An element arriving when the pipe is full breaks
+ * that contract; the subscription is then cancelled and the subscriber fails
+ * with an <code>IllegalStateException</code>.
+ * </p>
+ * <p>
+ * The elements are kept in a {@link SpscArrayPipe}: the publisher is the
+ * producer, and the consumer methods, {@link #poll()} and
+ * {@link #drain(Consumer, int)}, must be called by one thread at a time.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements received
+ * @version 1.0
+ */
+public class PipeSubscriber<E> implements Flow.Subscriber<E> {
+
+    private final SpscArrayPipe<E> pipe;
+    private final int replenishBatch;
+    private volatile Flow.Subscription subscription;
+    private volatile boolean done;
+    private volatile Throwable error;
+    /** Elements taken but not requested again yet. Consumer only. */
+    private int taken;
+
+    /**
+     * Constructor. Requests again once a quarter of the capacity has been
+     * taken.
+     *
+     * @param capacity the number of element that the pipe can hold
+     */
+    public PipeSubscriber(int capacity) {
+        this(capacity, Math.max(1, capacity / 4));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param capacity       the number of element that the pipe can hold
+     * @param replenishBatch the number of elements taken before they are
+     *                       requested again
+     * @throws IllegalArgumentException if the capacity is not positive or the
+     *                                  batch is not between 1 and the
+     *                                  capacity
+     */
+    public PipeSubscriber(int capacity, int replenishBatch)
+            throws IllegalArgumentException {
+        if (capacity <= 0 || replenishBatch <= 0 || replenishBatch > capacity) {
+            throw new IllegalArgumentException();
+        }
+        this.pipe = new SpscArrayPipe<>(capacity);
+        this.replenishBatch = replenishBatch;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (subscription == null) {
+            throw new NullPointerException();
+        }
+
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+
+        this.subscription = subscription;
+        subscription.request(pipe.capacity());
+    }
+
+    @Override
+    public void onNext(E item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+
+        if (!pipe.offer(item)) {
+            subscription.cancel();
+            fail(new IllegalStateException("more elements than requested"));
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (throwable == null) {
+            throw new NullPointerException();
+        }
+
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+    }
+
+    /**
+     * Removes and returns the first buffered element, or returns null if
+     * there is none. Consumer only.
+     *
+     * @return the first buffered element, or null
+     */
+    public E poll() {
+        E element = pipe.poll();
+        if (element != null) {
+            taken(1);
+        }
+        return element;
+    }
+
+    /**
+     * Removes up to <code>maxElements</code> buffered elements and passes
+     * them to the specified consumer. Consumer only.
+     *
+     * @param consumer    the consumer receiving the elements
+     * @param maxElements the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws IllegalArgumentException if the consumer is null or
+     *                                  maxElements is negative
+     */
+    public int drain(Consumer<? super E> consumer, int maxElements)
+            throws IllegalArgumentException {
+        int count = pipe.drain(consumer, maxElements);
+        taken(count);
+        return count;
+    }
+
+    /**
+     * Returns the number of elements buffered.
+     *
+     * @return the number of elements buffered
+     */
+    public int length() {
+        return pipe.length();
+    }
+
+    /**
+     * Returns whether the publisher has terminated and every buffered
+     * element has been taken.
+     *
+     * @return true if no element will be available any more
+     */
+    public boolean isDone() {
+        return done && pipe.isEmpty();
+    }
+
+    /**
+     * Returns the error the subscription terminated with.
+     *
+     * @return the error, or null if there is none
+     */
+    public Throwable error() {
+        return error;
+    }
+
+    /**
+     * Cancels the subscription. Elements already buffered can still be
+     * taken.
+     */
+    public void cancel() {
+        Flow.Subscription s = subscription;
+        if (s != null) {
+            s.cancel();
+        }
+        done = true;
+    }
+
+    private void fail(Throwable throwable) {
+        if (error == null) {
+            error = throwable;
+        }
+        done = true;
+    }
+
+    /**
+     * Requests again the taken elements once they reach a replenish batch.
+     */
+    private void taken(int count) {
+        taken += count;
+        if (taken >= replenishBatch && !done) {
+            int n = taken;
+            taken = 0;
+            subscription.request(n);
+        }
+    }
+}
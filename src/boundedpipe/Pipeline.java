@@ -0,0 +1,591 @@
+package boundedpipe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * <p>
+ * Chain of processing stages connected by bounded {@link BlockingPipe}s.
+ * Each stage runs a number of workers that take elements from the pipe
+ * before it and put their results into the pipe after it, so a slow stage
+ * fills the pipe before it and makes the stages upstream wait instead of
+ * buffering without bound.
+ * </p>
+ * <p>
+ * Example:<br>
+ * <code>Pipeline&lt;String&gt; p = Pipeline.&lt;String&gt;builder()
+ * .map("parse", Integer::valueOf, 2).filter("even", i -&gt; i % 2 == 0, 1)
+ * .sink("print", System.out::println, 1).build()</code>
+ * </p>
+ * <p>
+ * Workers run on the executor given to the builder, by default on a new
+ * daemon thread each; on a runtime with virtual threads, an executor
+ * creating a virtual thread per task can be passed instead. Elements keep
+ * their order through stages with a single worker.
+ * </p>
+ * <p>
+ * {@link #shutdown()} lets every element already put go through all the
+ * stages: an end marker is put after them for each worker of the first
+ * stage, and the last worker of a stage to stop passes markers on to the
+ * next stage. {@link #shutdownNow()} interrupts the workers and drops the
+ * elements in the pipes. An element for which a stage function throws a
+ * runtime exception or returns null is dropped and counted as failed by
+ * that stage.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <I> the type of elements put into the pipeline
+ * @version 1.0
+ */
+public class Pipeline<I> {
+    private static final Object END = new Object();
+    private static final int DEFAULT_PIPE_CAPACITY = 1024;
+
+    private final List<Stage> stages;
+    /** The pipe before each stage. */
+    private final List<BlockingPipe<Object>> pipes;
+    private final Executor executor;
+    private final CountDownLatch terminated;
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+    /** The number of puts between their check for shutdown and their put. */
+    private final AtomicInteger putting = new AtomicInteger();
+    private volatile boolean started;
+    private volatile boolean shutdown;
+    private volatile boolean aborted;
+
+    private Pipeline(List<Stage> stages, int pipeCapacity, Executor executor) {
+        this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+        this.pipes = new ArrayList<>();
+        int workerCount = 0;
+        for (Stage stage : stages) {
+            pipes.add(new LockedBlockingPipe<>(pipeCapacity));
+            workerCount += stage.parallelism;
+        }
+        this.executor = executor;
+        this.terminated = new CountDownLatch(workerCount);
+    }
+
+    /**
+     * Returns a builder for a pipeline taking elements of the specified
+     * type.
+     *
+     * @param <T> the type of elements put into the pipeline
+     * @return the builder
+     */
+    public static <T> Builder<T, T> builder() {
+        return new Builder<>(new ArrayList<>());
+    }
+
+    /**
+     * Starts the workers of every stage.
+     *
+     * @throws IllegalStateException if this pipeline was already started
+     */
+    public synchronized void start() throws IllegalStateException {
+        if (started) {
+            throw new IllegalStateException();
+        }
+        started = true;
+
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            BlockingPipe<Object> in = pipes.get(i);
+            BlockingPipe<Object> out = i + 1 < pipes.size()
+                    ? pipes.get(i + 1) : null;
+            int nextParallelism = i + 1 < stages.size()
+                    ? stages.get(i + 1).parallelism : 0;
+            for (int w = 0; w < stage.parallelism; w++) {
+                executor.execute(() -> work(stage, in, out, nextParallelism));
+            }
+        }
+    }
+
+    /**
+     * Puts the specified element into the first pipe, waiting if necessary
+     * for space to become available.
+     *
+     * @param element the element to be processed
+     * @throws InterruptedException     if interrupted while waiting
+     * @throws IllegalArgumentException if the specified element is null
+     * @throws IllegalStateException    if this pipeline is shut down
+     */
+    public void put(I element) throws InterruptedException,
+            IllegalArgumentException, IllegalStateException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        beginPut();
+        try {
+            pipes.get(0).putLast(element);
+        }
+        finally {
+            endPut();
+        }
+    }
+
+    /**
+     * Puts the specified element into the first pipe, waiting up to the
+     * specified time for space to become available.
+     *
+     * @param element the element to be processed
+     * @param timeout how long to wait before giving up
+     * @param unit    the unit of the timeout
+     * @return true if the element was put, false if the time ran out
+     * @throws InterruptedException     if interrupted while waiting
+     * @throws IllegalArgumentException if the specified element is null
+     * @throws IllegalStateException    if this pipeline is shut down
+     */
+    public boolean offer(I element, long timeout, TimeUnit unit)
+            throws InterruptedException, IllegalArgumentException,
+            IllegalStateException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        beginPut();
+        try {
+            return pipes.get(0).offerLast(element, timeout, unit);
+        }
+        finally {
+            endPut();
+        }
+    }
+
+    /**
+     * Counts a put in progress, counted before shutdown is checked so that
+     * {@link #shutdown()} does not put the end markers before its element.
+     */
+    private void beginPut() throws IllegalStateException {
+        putting.incrementAndGet();
+        if (shutdown) {
+            endPut();
+            throw new IllegalStateException();
+        }
+    }
+
+    private void endPut() {
+        if (putting.decrementAndGet() == 0 && shutdown) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting elements and lets the elements already put go through
+     * every stage before the workers stop. Puts that other threads started
+     * before the shutdown are waited for, so their elements go through too.
+     *
+     * @throws InterruptedException if interrupted while waiting for those
+     *                              puts or for space for the end markers
+     */
+    public void shutdown() throws InterruptedException {
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            while (putting.get() != 0 && !aborted) {
+                wait();
+            }
+            if (aborted) {
+                return;
+            }
+        }
+
+        for (int i = 0; i < stages.get(0).parallelism; i++) {
+            pipes.get(0).putLast(END);
+        }
+    }
+
+    /**
+     * Stops accepting elements and interrupts the workers. Elements still in
+     * the pipes are not processed.
+     */
+    public void shutdownNow() {
+        shutdown = true;
+        aborted = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until every worker has stopped or the specified time runs out.
+     *
+     * @param timeout how long to wait
+     * @param unit    the unit of the timeout
+     * @return true if every worker has stopped
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * Returns the stages, from the first to the last.
+     *
+     * @return the stages
+     */
+    public List<Stage> stages() {
+        return stages;
+    }
+
+    private void work(Stage stage, BlockingPipe<Object> in,
+            BlockingPipe<Object> out, int nextParallelism) {
+        Thread current = Thread.currentThread();
+        workers.add(current);
+        boolean interrupted = false;
+        try {
+            if (aborted) {
+                return;
+            }
+
+            while (true) {
+                Object element = in.takeFirst();
+                if (element == END) {
+                    break;
+                }
+
+                stage.received.increment();
+                try {
+                    stage.processor.process(element, result -> {
+                        if (result == null) {
+                            throw new NullPointerException();
+                        }
+                        out.putLast(result);
+                        stage.emitted.increment();
+                    });
+                }
+                catch (RuntimeException e) {
+                    stage.failed.increment();
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            interrupted = true;
+        }
+        finally {
+            workers.remove(current);
+            // Clear an interrupt from shutdownNow before the thread goes
+            // back to the executor.
+            if (Thread.interrupted()) {
+                interrupted = true;
+            }
+            if (stage.active.decrementAndGet() == 0 && out != null
+                    && !interrupted && !aborted) {
+                passEnd(out, nextParallelism);
+            }
+            terminated.countDown();
+        }
+    }
+
+    private void passEnd(BlockingPipe<Object> out, int count) {
+        try {
+            for (int i = 0; i < count; i++) {
+                out.putLast(END);
+            }
+        }
+        catch (InterruptedException e) {
+            // Only shutdownNow interrupts workers, and it drops everything.
+        }
+    }
+
+    /**
+     * Receives the results of a stage function.
+     */
+    interface Emitter {
+        void emit(Object result) throws InterruptedException;
+    }
+
+    /**
+     * Applies a stage function to one element.
+     */
+    interface Processor {
+        void process(Object element, Emitter out) throws InterruptedException;
+    }
+
+    /**
+     * Stage of a pipeline, with counters that may be read while it runs.
+     */
+    public static class Stage {
+        private final String name;
+        private final int parallelism;
+        private final Processor processor;
+        private final AtomicInteger active;
+        private final LongAdder received = new LongAdder();
+        private final LongAdder emitted = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+
+        Stage(String name, int parallelism, Processor processor) {
+            this.name = name;
+            this.parallelism = parallelism;
+            this.processor = processor;
+            this.active = new AtomicInteger(parallelism);
+        }
+
+        /**
+         * Returns the name of this stage.
+         *
+         * @return the name
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Returns the number of workers of this stage.
+         *
+         * @return the number of workers
+         */
+        public int parallelism() {
+            return parallelism;
+        }
+
+        /**
+         * Returns the number of elements this stage has taken.
+         *
+         * @return the number of elements taken
+         */
+        public long receivedCount() {
+            return received.sum();
+        }
+
+        /**
+         * Returns the number of results this stage has passed on.
+         *
+         * @return the number of results
+         */
+        public long emittedCount() {
+            return emitted.sum();
+        }
+
+        /**
+         * Returns the number of elements dropped because the stage function
+         * failed on them.
+         *
+         * @return the number of failed elements
+         */
+        public long failedCount() {
+            return failed.sum();
+        }
+
+        @Override
+        public String toString() {
+            return name + "[received=" + receivedCount() + ", emitted="
+                    + emittedCount() + ", failed=" + failedCount() + "]";
+        }
+    }
+
+    /**
+     * Builder of a pipeline.
+     *
+     * @param <I> the type of elements put into the pipeline
+     * @param <O> the type of elements produced by the last stage so far
+     */
+    public static class Builder<I, O> {
+        private final List<Stage> stages;
+        private int pipeCapacity = DEFAULT_PIPE_CAPACITY;
+        private Executor executor;
+        private boolean sunk;
+
+        private Builder(List<Stage> stages) {
+            this.stages = stages;
+        }
+
+        private <R> Builder<I, R> then(Stage stage) {
+            if (sunk) {
+                throw new IllegalStateException();
+            }
+            if (stage.name == null || stage.parallelism <= 0) {
+                throw new IllegalArgumentException();
+            }
+
+            // Each builder has its own list, so two stages added to the same
+            // builder give two separate pipelines.
+            List<Stage> extended = new ArrayList<>(stages);
+            extended.add(stage);
+            Builder<I, R> next = new Builder<>(extended);
+            next.pipeCapacity = pipeCapacity;
+            next.executor = executor;
+            return next;
+        }
+
+        /**
+         * Sets the capacity of the pipe before each stage. The default is
+         * 1024.
+         *
+         * @param capacity the capacity of each pipe
+         * @return this builder
+         * @throws IllegalArgumentException if the capacity is not positive
+         */
+        public Builder<I, O> pipeCapacity(int capacity)
+                throws IllegalArgumentException {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException();
+            }
+            this.pipeCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Sets the executor running the workers, one long-running task per
+         * worker. The default starts a new daemon thread per worker.
+         *
+         * @param executor the executor
+         * @return this builder
+         * @throws IllegalArgumentException if the executor is null
+         */
+        public Builder<I, O> executor(Executor executor)
+                throws IllegalArgumentException {
+            if (executor == null) {
+                throw new IllegalArgumentException();
+            }
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Adds a stage passing on the result of the function for each
+         * element.
+         *
+         * @param name        the name of the stage
+         * @param function    the function applied to each element
+         * @param parallelism the number of workers
+         * @param <R>         the type of the results
+         * @return the builder of the extended pipeline
+         * @throws IllegalArgumentException if an argument is null or the
+         *                                  parallelism is not positive
+         * @throws IllegalStateException    if a sink was already added
+         */
+        @SuppressWarnings("unchecked")
+        public <R> Builder<I, R> map(String name,
+                Function<? super O, ? extends R> function, int parallelism)
+                throws IllegalArgumentException, IllegalStateException {
+            if (function == null) {
+                throw new IllegalArgumentException();
+            }
+            return then(new Stage(name, parallelism,
+                    (e, out) -> out.emit(function.apply((O) e))));
+        }
+
+        /**
+         * Adds a stage passing on the elements the predicate accepts.
+         *
+         * @param name        the name of the stage
+         * @param predicate   the predicate tested on each element
+         * @param parallelism the number of workers
+         * @return the builder of the extended pipeline
+         * @throws IllegalArgumentException if an argument is null or the
+         *                                  parallelism is not positive
+         * @throws IllegalStateException    if a sink was already added
+         */
+        @SuppressWarnings("unchecked")
+        public Builder<I, O> filter(String name,
+                Predicate<? super O> predicate, int parallelism)
+                throws IllegalArgumentException, IllegalStateException {
+            if (predicate == null) {
+                throw new IllegalArgumentException();
+            }
+            return then(new Stage(name, parallelism, (e, out) -> {
+                if (predicate.test((O) e)) {
+                    out.emit(e);
+                }
+            }));
+        }
+
+        /**
+         * Adds a stage passing on every result the function returns for
+         * each element.
+         *
+         * @param name        the name of the stage
+         * @param function    the function applied to each element
+         * @param parallelism the number of workers
+         * @param <R>         the type of the results
+         * @return the builder of the extended pipeline
+         * @throws IllegalArgumentException if an argument is null or the
+         *                                  parallelism is not positive
+         * @throws IllegalStateException    if a sink was already added
+         */
+        @SuppressWarnings("unchecked")
+        public <R> Builder<I, R> flatMap(String name,
+                Function<? super O, ? extends Iterable<? extends R>> function,
+                int parallelism)
+                throws IllegalArgumentException, IllegalStateException {
+            if (function == null) {
+                throw new IllegalArgumentException();
+            }
+            return then(new Stage(name, parallelism, (e, out) -> {
+                for (R result : function.apply((O) e)) {
+                    out.emit(result);
+                }
+            }));
+        }
+
+        /**
+         * Adds the last stage, which hands each element to the consumer.
+         *
+         * @param name        the name of the stage
+         * @param consumer    the consumer of the elements
+         * @param parallelism the number of workers
+         * @return the builder of the complete pipeline
+         * @throws IllegalArgumentException if an argument is null or the
+         *                                  parallelism is not positive
+         * @throws IllegalStateException    if a sink was already added
+         */
+        @SuppressWarnings("unchecked")
+        public Builder<I, Void> sink(String name, Consumer<? super O> consumer,
+                int parallelism)
+                throws IllegalArgumentException, IllegalStateException {
+            if (consumer == null) {
+                throw new IllegalArgumentException();
+            }
+            Builder<I, Void> next = then(new Stage(name, parallelism,
+                    (e, out) -> consumer.accept((O) e)));
+            next.sunk = true;
+            return next;
+        }
+
+        /**
+         * Builds the pipeline, which still has to be started.
+         *
+         * @return the pipeline
+         * @throws IllegalStateException if the last stage is not a sink
+         */
+        public Pipeline<I> build() throws IllegalStateException {
+            if (!sunk) {
+                throw new IllegalStateException();
+            }
+
+            Executor runner = executor != null ? executor : task -> {
+                Thread thread = new Thread(task, "pipeline-worker");
+                thread.setDaemon(true);
+                thread.start();
+            };
+            // Fresh stages, so that counters and the count of running workers
+            // start from zero in every pipeline built.
+            List<Stage> fresh = new ArrayList<>(stages.size());
+            for (Stage stage : stages) {
+                fresh.add(new Stage(stage.name, stage.parallelism,
+                        stage.processor));
+            }
+            return new Pipeline<>(fresh, pipeCapacity, runner);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package boundedpipe;
+
+import java.util.Comparator;
+
+/**
+ * <p>
+ * A pipe whose elements can be read and replaced by their position, counted
+ * from the first element at index <code>0</code> to the last element at
+ * index <code>length() - 1</code>.
+ * </p>
+ * <p>
+ * Array based implementations answer {@link #get(int)} and
+ * {@link #set(int, Object)} in constant time; other implementations document
+ * their cost.
+ * </p>
+ *
+ * @param <E> the type of elements in this pipe
+ * @author pohan(pohan)
+ * @version 1.0
+ */
+public interface RandomAccessPipe<E> extends Pipe<E> {
+
+    /**
+     * <p>
+     * Returns the element at the specified position in this pipe.
+     * </p>
+     * <p>
+     * Example:<br>
+     * { <code>p = [A, B, C]:6</code> }<br>
+     * <code>e = p.get(1)</code><br>
+     * { <code>p = [A, B, C]:6</code> <em>and</em> <code>e = B</code> }<br>
+     * </p>
+     *
+     * @param index the position of the element, from the first element
+     * @return the element at the specified position
+     * @throws IndexOutOfBoundsException if the index is negative or not less
+     *                                   than the length
+     */
+    E get(int index) throws IndexOutOfBoundsException;
+
+    /**
+     * <p>
+     * Replaces the element at the specified position in this pipe.
+     * </p>
+     * <p>
+     * Example:<br>
+     * { <code>p = [A, B, C]:6</code> }<br>
+     * <code>e = p.set(1, X)</code><br>
+     * { <code>p = [A, X, C]:6</code> <em>and</em> <code>e = B</code> }<br>
+     * </p>
+     *
+     * @param index   the position of the element, from the first element
+     * @param element the element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IllegalArgumentException  if the specified element is null
+     * @throws IndexOutOfBoundsException if the index is negative or not less
+     *                                   than the length
+     */
+    E set(int index, E element) throws IllegalArgumentException,
+            IndexOutOfBoundsException;
+
+    /**
+     * <p>
+     * Searches this pipe for the specified key with the binary search
+     * algorithm. The elements must be sorted in ascending order according to
+     * the comparator, otherwise the result is undefined. If several elements
+     * are equal to the key, any of them may be found.
+     * </p>
+     * <p>
+     * Example:<br>
+     * { <code>p = [A, C, E]:6</code> }<br>
+     * <code>i = p.binarySearch(C, null)</code>,
+     * <code>j = p.binarySearch(D, null)</code><br>
+     * { <code>i = 1</code> <em>and</em> <code>j = -3</code> }<br>
+     * </p>
+     *
+     * @param key        the element to be searched for
+     * @param comparator the order of the elements, or null for their
+     *                   natural ordering
+     * @return the index of the key if it is found, otherwise
+     * <code>(-(insertion point) - 1)</code>, where the insertion point is
+     * the index at which the key would be inserted to keep the order
+     * @throws IllegalArgumentException if the key is null
+     * @throws ClassCastException       if the comparator is null and the
+     *                                  elements are not mutually comparable
+     */
+    @SuppressWarnings("unchecked")
+    default int binarySearch(E key, Comparator<? super E> comparator)
+            throws IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException();
+        }
+
+        Comparator<? super E> order = comparator != null
+                ? comparator : (a, b) -> ((Comparable<? super E>) a).compareTo(b);
+        int low = 0;
+        int high = length() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = order.compare(get(mid), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            }
+            else if (cmp > 0) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
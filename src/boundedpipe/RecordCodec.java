@@ -0,0 +1,45 @@
+package boundedpipe;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts elements to and from fixed-size binary records.
+ * <p>
+ * Implementations must use the absolute <code>get</code> and
+ * <code>put</code> methods of the buffer and stay within
+ * <code>[offset, offset + recordSize())</code>; they must not change the
+ * position or limit of the buffer.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements encoded by this codec
+ * @version 1.0
+ */
+public interface RecordCodec<E> {
+
+    /**
+     * Returns the number of bytes of every record.
+     *
+     * @return the number of bytes of every record
+     */
+    int recordSize();
+
+    /**
+     * Writes the specified element as a record starting at the specified
+     * offset.
+     *
+     * @param element the element to be written, never null
+     * @param buffer  the buffer receiving the record
+     * @param offset  the index in the buffer of the first byte of the record
+     */
+    void write(E element, ByteBuffer buffer, int offset);
+
+    /**
+     * Reads the record starting at the specified offset.
+     *
+     * @param buffer the buffer holding the record
+     * @param offset the index in the buffer of the first byte of the record
+     * @return the element, never null
+     */
+    E read(ByteBuffer buffer, int offset);
+}
@@ -0,0 +1,206 @@
+package boundedpipe;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * Histogram of durations in nanoseconds, used by {@link InstrumentedPipe} to
+ * record how long elements stay in a pipe.
+ * </p>
+ * <p>
+ * Values below 16 have a bucket each. Larger values are split by their
+ * highest bit and then into 8 buckets per power of two, so a bucket is at
+ * most one eighth of its value wide and the whole range of a long fits in a
+ * few hundred buckets.
+ * </p>
+ * <p>
+ * Durations must be recorded by one thread at a time, like the pipe that
+ * feeds them. Recording uses plain reads and release stores instead of
+ * atomic increments, so it stays cheap, and a snapshot may be taken from
+ * another thread at any time.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @version 1.0
+ */
+public class ResidenceHistogram {
+    private static final int LINEAR = 16;
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+
+    private static final VarHandle TOTAL;
+    private static final VarHandle MAX;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TOTAL = lookup.findVarHandle(ResidenceHistogram.class, "total",
+                    long.class);
+            MAX = lookup.findVarHandle(ResidenceHistogram.class, "max",
+                    long.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /** Written by the recording thread only. */
+    private long total;
+    /** Written by the recording thread only. */
+    private long max;
+
+    /**
+     * Records one duration. Negative durations are recorded as zero.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int bucket = bucketOf(value);
+        counts.setRelease(bucket, counts.getPlain(bucket) + 1);
+        TOTAL.setRelease(this, total + value);
+        if (value > max) {
+            MAX.setRelease(this, value);
+        }
+    }
+
+    /**
+     * Forgets every recorded duration. Must be called by the recording
+     * thread.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.setRelease(i, 0);
+        }
+        TOTAL.setRelease(this, 0L);
+        MAX.setRelease(this, 0L);
+    }
+
+    /**
+     * Returns a copy of the recorded durations.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.getAcquire(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, (long) TOTAL.getAcquire(this),
+                (long) MAX.getAcquire(this));
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the largest value that falls in the specified bucket.
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+
+        int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        long lowest = (SUB_BUCKETS + sub) * width;
+        return lowest + (width - 1);
+    }
+
+    /**
+     * Immutable copy of a {@link ResidenceHistogram}.
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long total, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        /**
+         * Returns the number of recorded durations.
+         *
+         * @return the number of recorded durations
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Returns the longest recorded duration, or 0 if there is none.
+         *
+         * @return the longest duration in nanoseconds
+         */
+        public long max() {
+            return max;
+        }
+
+        /**
+         * Returns the mean of the recorded durations, or 0 if there is none.
+         *
+         * @return the mean duration in nanoseconds
+         */
+        public double mean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        /**
+         * Returns a duration that at least the specified percentage of the
+         * recorded durations do not exceed. The result is the upper bound of
+         * a bucket, so it may be up to one eighth too high, but it is never
+         * higher than {@link #max()}.
+         *
+         * @param percentile the percentage, from 0 to 100
+         * @return the duration in nanoseconds, or 0 if there is none
+         * @throws IllegalArgumentException if the percentage is outside
+         *                                  0 to 100
+         */
+        public long percentile(double percentile)
+                throws IllegalArgumentException {
+            if (!(percentile >= 0 && percentile <= 100)) {
+                throw new IllegalArgumentException();
+            }
+
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + " mean=" + (long) mean()
+                    + " p50=" + percentile(50) + " p99=" + percentile(99)
+                    + " p999=" + percentile(99.9) + " max=" + max;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package boundedpipe;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * Pipe implemented by a linked list of fixed-size arrays (segments).
+ * </p>
+ * <p>
+ * Segments are allocated when an end runs out of room and released when an
+ * end empties one, so memory follows the length rather than the capacity,
+ * while iteration still walks mostly contiguous arrays. One released segment
+ * is kept as a spare, so adding and removing across a segment boundary does
+ * not allocate every time.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in this pipe
+ * @version 1.0
+ */
+public class SegmentedPipe<E> extends AbstractPipe<E> {
+    private static final int DEFAULT_SEGMENT_SIZE = 64;
+
+    private final int segmentSize;
+    private Segment firstSegment;
+    private Segment lastSegment;
+    /** Index of the first element in the first segment. */
+    private int firstIndex;
+    /** Index after the last element in the last segment. */
+    private int lastIndex;
+    private int length;
+    private Segment spare;
+
+    /**
+     * Constructor
+     *
+     * @param capacity the number of element that this pipe can hold
+     */
+    public SegmentedPipe(int capacity) {
+        this(capacity, Math.max(1, Math.min(capacity, DEFAULT_SEGMENT_SIZE)));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param capacity    the number of element that this pipe can hold
+     * @param segmentSize the number of elements of every segment
+     * @throws IllegalArgumentException if the segment size is not positive
+     */
+    public SegmentedPipe(int capacity, int segmentSize)
+            throws IllegalArgumentException {
+        super(capacity);
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E first() {
+        return length == 0 ? null : (E) firstSegment.items[firstIndex];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E last() {
+        return length == 0 ? null : (E) lastSegment.items[lastIndex - 1];
+    }
+
+    @Override
+    public void prepend(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (isFull()) {
+            throw new IllegalStateException();
+        }
+
+        if (length == 0) {
+            start(segmentSize);
+        }
+        else if (firstIndex == 0) {
+            Segment segment = obtainSegment();
+            segment.next = firstSegment;
+            firstSegment.prev = segment;
+            firstSegment = segment;
+            firstIndex = segmentSize;
+        }
+
+        firstIndex--;
+        firstSegment.items[firstIndex] = element;
+        length++;
+    }
+
+    @Override
+    public void append(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (isFull()) {
+            throw new IllegalStateException();
+        }
+
+        if (length == 0) {
+            start(0);
+        }
+        else if (lastIndex == segmentSize) {
+            Segment segment = obtainSegment();
+            segment.prev = lastSegment;
+            lastSegment.next = segment;
+            lastSegment = segment;
+            lastIndex = 0;
+        }
+
+        lastSegment.items[lastIndex] = element;
+        lastIndex++;
+        length++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E removeFirst() throws IllegalStateException {
+        if (isEmpty()) {
+            throw new IllegalStateException();
+        }
+
+        E element = (E) firstSegment.items[firstIndex];
+        firstSegment.items[firstIndex] = null;
+        firstIndex++;
+        length--;
+
+        if (length == 0) {
+            stop();
+        }
+        else if (firstIndex == segmentSize) {
+            Segment released = firstSegment;
+            firstSegment = released.next;
+            firstSegment.prev = null;
+            firstIndex = 0;
+            release(released);
+        }
+        return element;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E removeLast() throws IllegalStateException {
+        if (isEmpty()) {
+            throw new IllegalStateException();
+        }
+
+        lastIndex--;
+        E element = (E) lastSegment.items[lastIndex];
+        lastSegment.items[lastIndex] = null;
+        length--;
+
+        if (length == 0) {
+            stop();
+        }
+        else if (lastIndex == 0) {
+            Segment released = lastSegment;
+            lastSegment = released.prev;
+            lastSegment.next = null;
+            lastIndex = segmentSize;
+            release(released);
+        }
+        return element;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public Pipe<E> newInstance() {
+        return new SegmentedPipe<>(capacity(), segmentSize);
+    }
+
+    @Override
+    public void clear() {
+        if (length > 0) {
+            Arrays.fill(firstSegment.items, null);
+            firstSegment.next = null;
+            lastSegment = firstSegment;
+            stop();
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new PipeIterator();
+    }
+
+    /**
+     * Sets up a single segment for an empty pipe, with both ends at the
+     * specified index: the end of the segment for a first element prepended,
+     * its beginning for one appended, so that a segment of size 1 still has
+     * room on the side the element enters from.
+     */
+    private void start(int index) {
+        firstSegment = obtainSegment();
+        lastSegment = firstSegment;
+        firstIndex = index;
+        lastIndex = index;
+    }
+
+    /**
+     * Releases the only segment of a pipe that has just become empty.
+     */
+    private void stop() {
+        release(firstSegment);
+        firstSegment = null;
+        lastSegment = null;
+        length = 0;
+    }
+
+    /**
+     * Returns the spare segment, or a new segment if there is none.
+     */
+    private Segment obtainSegment() {
+        if (spare == null) {
+            return new Segment(segmentSize);
+        }
+
+        Segment segment = spare;
+        spare = null;
+        return segment;
+    }
+
+    /**
+     * Keeps an emptied segment as the spare unless there already is one.
+     */
+    private void release(Segment segment) {
+        segment.prev = null;
+        segment.next = null;
+        if (spare == null) {
+            spare = segment;
+        }
+    }
+
+    /**
+     * Pipe iterator
+     */
+    class PipeIterator implements Iterator<E> {
+        private Segment segment = firstSegment;
+        private int index = firstIndex;
+        private int count = 0;
+
+        @Override
+        public boolean hasNext() {
+            return count != length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            if (index == segmentSize) {
+                segment = segment.next;
+                index = 0;
+            }
+            count++;
+            return (E) segment.items[index++];
+        }
+    }
+
+    /**
+     * Array segment.
+     */
+    static class Segment {
+        private final Object[] items;
+        private Segment prev;
+        private Segment next;
+
+        Segment(int size) {
+            items = new Object[size];
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package boundedpipe;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Lock-free pipe for one producer thread and one consumer thread, laid out as
+ * a circular array like {@link CircArrayPipe}.
+ * </p>
+ * <p>
+ * The producer may call {@link #append(Object)}, {@link #offer(Object)},
+ * {@link #last()} and {@link #appendAll(Pipe)}. The consumer may call
+ * {@link #removeFirst()}, {@link #poll()}, the drain methods,
+ * {@link #first()}, {@link #clear()} and {@link #iterator()}. The ends that
+ * would need both threads to write the same index,
+ * {@link #prepend(Object)} and {@link #removeLast()}, are not supported.
+ * </p>
+ * <p>
+ * <code>head</code> and <code>tail</code> count the elements ever removed and
+ * ever added. Each side publishes its own counter with a release store and
+ * reads the other side's counter with an acquire load, and only re-reads it
+ * when the cached copy says the pipe is full or empty. As in
+ * {@link CircArrayPipe}, the array is rounded up to a power of two and a
+ * counter is turned into an index with a mask.
+ * </p>
+ * <p>
+ * The producer's fields and the consumer's fields are kept on separate cache
+ * lines by unused <code>long</code> fields around them, so that a write by
+ * one thread does not invalidate the line the other thread is reading.
+ * HotSpot lays out fields of the same size in the order they are declared.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in this pipe
+ * @version 1.0
+ */
+public class SpscArrayPipe<E> extends AbstractPipe<E> {
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(SpscArrayPipe.class, "head", long.class);
+            TAIL = lookup.findVarHandle(SpscArrayPipe.class, "tail", long.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final private E[] elements;
+    final private int mask;
+
+    private long p00, p01, p02, p03, p04, p05, p06;
+    /** Written by the producer only. */
+    private long tail;
+    /** The producer's last view of head. */
+    private long headCache;
+    private long p10, p11, p12, p13, p14, p15, p16;
+    /** Written by the consumer only. */
+    private long head;
+    /** The consumer's last view of tail. */
+    private long tailCache;
+    private long p20, p21, p22, p23, p24, p25, p26;
+
+    /**
+     * Constructor
+     *
+     * @param capacity the number of element that this pipe can hold
+     * @throws IllegalArgumentException if the capacity is greater than 2^30
+     */
+    @SuppressWarnings("unchecked")
+    public SpscArrayPipe(int capacity) throws IllegalArgumentException {
+        super(capacity);
+        if (capacity > CircArrayPipe.MAX_STORAGE) {
+            throw new IllegalArgumentException();
+        }
+        int storage = capacity <= 1
+                ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        elements = (E[]) new Object[storage];
+        mask = storage - 1;
+    }
+
+    /**
+     * Adds the specified element to the end of this pipe if it is not full.
+     * Producer only.
+     *
+     * @param element the element to be appended to this pipe
+     * @return true if the element was added, false if this pipe is full
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    public boolean offer(E element) throws IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        long t = tail;
+        if (t - headCache >= capacity()) {
+            headCache = (long) HEAD.getAcquire(this);
+            if (t - headCache >= capacity()) {
+                return false;
+            }
+        }
+
+        elements[(int) (t & mask)] = element;
+        TAIL.setRelease(this, t + 1);
+        return true;
+    }
+
+    /**
+     * Removes and returns the first element of this pipe, or returns null if
+     * this pipe is empty. Consumer only.
+     *
+     * @return the first element of this pipe, or null if it is empty
+     */
+    public E poll() {
+        long h = head;
+        if (h >= tailCache) {
+            tailCache = (long) TAIL.getAcquire(this);
+            if (h >= tailCache) {
+                return null;
+            }
+        }
+
+        int index = (int) (h & mask);
+        E element = elements[index];
+        elements[index] = null;
+        HEAD.setRelease(this, h + 1);
+        return element;
+    }
+
+    /**
+     * Removes up to <code>maxElements</code> elements and passes them to the
+     * specified consumer. Reads tail once and publishes head once, so the
+     * producer sees the freed slots together. Consumer only.
+     *
+     * @param consumer    the consumer receiving the elements
+     * @param maxElements the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws IllegalArgumentException if the consumer is null or
+     *                                  maxElements is negative
+     */
+    @Override
+    public int drain(Consumer<? super E> consumer, int maxElements)
+            throws IllegalArgumentException {
+        if (consumer == null || maxElements < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        long h = head;
+        tailCache = (long) TAIL.getAcquire(this);
+        int count = (int) Math.min(maxElements, tailCache - h);
+        long end = h + count;
+        try {
+            while (h != end) {
+                int index = (int) (h & mask);
+                E element = elements[index];
+                elements[index] = null;
+                h++;
+                consumer.accept(element);
+            }
+        }
+        finally {
+            HEAD.setRelease(this, h);
+        }
+        return count;
+    }
+
+    @Override
+    public E first() {
+        long h = head;
+        if (h >= (long) TAIL.getAcquire(this)) {
+            return null;
+        }
+        return elements[(int) (h & mask)];
+    }
+
+    @Override
+    public E last() {
+        long t = tail;
+        if (t <= (long) HEAD.getAcquire(this)) {
+            return null;
+        }
+        return elements[(int) ((t - 1) & mask)];
+    }
+
+    /**
+     * Not supported: only the producer may write and it writes at the end.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void prepend(E element) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void append(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        if (!offer(element)) {
+            throw new IllegalStateException();
+        }
+    }
+
+    @Override
+    public E removeFirst() throws IllegalStateException {
+        E element = poll();
+        if (element == null) {
+            throw new IllegalStateException();
+        }
+        return element;
+    }
+
+    /**
+     * Not supported: only the consumer may remove and it removes at the
+     * beginning.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public E removeLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the number of elements in this pipe. When both threads are
+     * running the result is only a snapshot.
+     *
+     * @return the number of elements in this pipe
+     */
+    @Override
+    public int length() {
+        long h = (long) HEAD.getAcquire(this);
+        long t = (long) TAIL.getAcquire(this);
+        return (int) Math.max(0, Math.min(capacity(), t - h));
+    }
+
+    @Override
+    public Pipe<E> newInstance() {
+        return new SpscArrayPipe<>(capacity());
+    }
+
+    @Override
+    public void clear() {
+        while (poll() != null) {
+            // drop the element
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements that were in this pipe when it
+     * was created. Consumer only.
+     *
+     * @return an iterator from the first to the last element
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new PipeIterator();
+    }
+
+    /**
+     * Pipe iterator
+     */
+    class PipeIterator implements Iterator<E> {
+        private long ptr = head;
+        private final long end = (long) TAIL.getAcquire(SpscArrayPipe.this);
+
+        @Override
+        public boolean hasNext() {
+            return ptr < end;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return elements[(int) (ptr++ & mask)];
+        }
+    }
+}
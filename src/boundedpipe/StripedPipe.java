@@ -0,0 +1,665 @@
+package boundedpipe;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Pipe split into lanes, each a {@link CircArrayPipe} behind its own lock, so
+ * that producers on different lanes do not contend. Each lane also publishes
+ * its length, so that a full lane is refused and an empty lane is skipped
+ * without taking its lock.
+ * </p>
+ * <p>
+ * {@link #append(Object)} adds to the lane picked by the calling thread, so
+ * the elements of one thread keep their order; {@link #append(Object, int)}
+ * picks the lane by a hash instead, for instance of a key whose elements must
+ * stay in order. An element is refused when its lane is full, even if other
+ * lanes have room. The capacity is shared out between the lanes. The bulk
+ * additions, {@link #appendAll(Pipe)} and the batch appends, instead spread
+ * their elements over every lane with room, taking turns from the lane of
+ * the calling thread. A batch is added under the locks of all the lanes, so
+ * it is added whole or not at all; <code>appendAll</code> adds one element
+ * at a time, removing each from the other pipe only once it is added, and
+ * may fail part way while other producers are running.
+ * </p>
+ * <p>
+ * Consumers take from the lanes in turn, so the order holds within a lane but
+ * not between lanes. In global-sequence mode, every element is also given a
+ * number from a shared counter while its lane is locked, and consumers take
+ * the elements strictly in that order, at the cost of the shared counter and
+ * of serializing the consumers.
+ * </p>
+ * <p>
+ * {@link #prepend(Object)} and {@link #removeLast()} are not supported.
+ * {@link #length()}, {@link #first()}, {@link #last()} and iteration give a
+ * snapshot while other threads are running; {@link #last()} and iteration
+ * lock every lane.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in this pipe
+ * @version 1.0
+ */
+public class StripedPipe<E> extends AbstractPipe<E> {
+
+    private final Lane<E>[] lanes;
+    private final boolean globalSequence;
+    /** The next lane consumers take from. */
+    private final AtomicInteger cursor = new AtomicInteger();
+    /** The number given to the next element in global-sequence mode. */
+    private final AtomicLong sequence = new AtomicLong();
+    /** Serializes consumers in global-sequence mode. */
+    private final ReentrantLock consumerLock = new ReentrantLock();
+    /** The number of the next element to take. Guarded by consumerLock. */
+    private long nextSequence;
+
+    /**
+     * Constructor
+     *
+     * @param capacity  the number of element that this pipe can hold
+     * @param laneCount the number of lanes
+     */
+    public StripedPipe(int capacity, int laneCount) {
+        this(capacity, laneCount, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param capacity       the number of element that this pipe can hold
+     * @param laneCount      the number of lanes
+     * @param globalSequence whether consumers take the elements in the order
+     *                       they were added across all lanes
+     * @throws IllegalArgumentException if the number of lanes is not between
+     *                                  1 and the capacity
+     */
+    @SuppressWarnings("unchecked")
+    public StripedPipe(int capacity, int laneCount, boolean globalSequence)
+            throws IllegalArgumentException {
+        super(capacity);
+        if (laneCount <= 0 || laneCount > capacity) {
+            throw new IllegalArgumentException();
+        }
+
+        this.globalSequence = globalSequence;
+        lanes = (Lane<E>[]) new Lane<?>[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            int laneCapacity = capacity / laneCount
+                    + (i < capacity % laneCount ? 1 : 0);
+            lanes[i] = new Lane<>(laneCapacity, globalSequence);
+        }
+    }
+
+    /**
+     * Returns the number of lanes.
+     *
+     * @return the number of lanes
+     */
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Returns whether consumers take the elements in the order they were
+     * added across all lanes.
+     *
+     * @return true in global-sequence mode
+     */
+    public boolean isGlobalSequence() {
+        return globalSequence;
+    }
+
+    /**
+     * Adds the specified element to the end of the lane of the calling
+     * thread if that lane is not full.
+     *
+     * @param element the element to be appended to this pipe
+     * @return true if the element was added, false if the lane is full
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    public boolean offer(E element) throws IllegalArgumentException {
+        return offer(element, Long.hashCode(Thread.currentThread().getId()));
+    }
+
+    /**
+     * Adds the specified element to the end of the lane picked by the
+     * specified hash if that lane is not full.
+     *
+     * @param element the element to be appended to this pipe
+     * @param hash    the hash picking the lane
+     * @return true if the element was added, false if the lane is full
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    public boolean offer(E element, int hash) throws IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        return offerTo(lanes[laneOf(hash)], element);
+    }
+
+    /**
+     * Adds the specified element to the end of the specified lane if it is
+     * not full.
+     */
+    private boolean offerTo(Lane<E> lane, E element) {
+        if (lane.length == lane.elements.capacity()) {
+            return false;
+        }
+        lane.lock.lock();
+        try {
+            if (lane.elements.isFull()) {
+                return false;
+            }
+            addTo(lane, element);
+            return true;
+        }
+        finally {
+            lane.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the specified element to the end of the specified lane. Called
+     * with the lane locked and not full.
+     */
+    private void addTo(Lane<E> lane, E element) {
+        if (globalSequence) {
+            lane.sequences.append(sequence.getAndIncrement());
+        }
+        lane.elements.append(element);
+        lane.length++;
+    }
+
+    @Override
+    public void append(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        if (!offer(element)) {
+            throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * Adds the specified element to the end of the lane picked by the
+     * specified hash.
+     *
+     * @param element the element to be appended to this pipe
+     * @param hash    the hash picking the lane
+     * @throws IllegalStateException    if the lane is full
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    public void append(E element, int hash) throws IllegalStateException,
+            IllegalArgumentException {
+        if (!offer(element, hash)) {
+            throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * Adds the elements of the specified pipe one at a time, each to the
+     * next lane with room, and removes each from that pipe only once it has
+     * been added.
+     *
+     * @param that the pipe to be drained into this pipe
+     * @throws IllegalStateException if other producers filled this pipe
+     */
+    @Override
+    protected void transferAll(Pipe<E> that) throws IllegalStateException {
+        int start = laneOf(Long.hashCode(Thread.currentThread().getId()));
+        E element;
+        while ((element = that.first()) != null) {
+            boolean added = false;
+            for (int i = 0; i < lanes.length && !added; i++) {
+                added = offerTo(lanes[(start + i) % lanes.length], element);
+            }
+            if (!added) {
+                throw new IllegalStateException();
+            }
+            that.removeFirst();
+            start++;
+        }
+    }
+
+    /**
+     * Adds the elements of the specified array, in turn to each lane with
+     * room, under the locks of all the lanes. Nothing is added if the lanes
+     * do not have room for every element between them.
+     *
+     * @param src    the array holding the elements
+     * @param offset the index in the array of the first element
+     * @param length the number of elements to add
+     * @throws IllegalStateException     if the elements do not fit
+     * @throws IllegalArgumentException  if the array or an element is null
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    @Override
+    public void appendBatch(E[] src, int offset, int length)
+            throws IllegalStateException, IllegalArgumentException,
+            IndexOutOfBoundsException {
+        checkBatch(src, offset, length);
+
+        lockAll();
+        try {
+            int free = 0;
+            for (Lane<E> lane : lanes) {
+                free += lane.elements.capacity() - lane.elements.length();
+            }
+            if (length > free) {
+                throw new IllegalStateException();
+            }
+
+            int next = laneOf(Long.hashCode(Thread.currentThread().getId()));
+            for (int i = offset; i < offset + length; i++) {
+                Lane<E> lane = lanes[next];
+                while (lane.elements.isFull()) {
+                    next = (next + 1) % lanes.length;
+                    lane = lanes[next];
+                }
+                addTo(lane, src[i]);
+                next = (next + 1) % lanes.length;
+            }
+        }
+        finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Removes and returns the next element, or returns null if this pipe is
+     * empty.
+     *
+     * @return the next element, or null if this pipe is empty
+     */
+    public E poll() {
+        if (globalSequence) {
+            consumerLock.lock();
+            try {
+                return pollSequenced();
+            }
+            finally {
+                consumerLock.unlock();
+            }
+        }
+
+        int start = cursor.getAndIncrement();
+        for (int i = 0; i < lanes.length; i++) {
+            Lane<E> lane = lanes[Math.floorMod(start + i, lanes.length)];
+            if (lane.length == 0) {
+                continue;
+            }
+            lane.lock.lock();
+            try {
+                if (!lane.elements.isEmpty()) {
+                    lane.length--;
+                    return lane.elements.removeFirst();
+                }
+            }
+            finally {
+                lane.lock.unlock();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the element numbered <code>nextSequence</code>. Once an
+     * element with a higher number is seen, the wanted one has been numbered
+     * too, and is added as soon as its producer releases its lane, so the
+     * lanes are scanned again. Called with consumerLock held.
+     */
+    private E pollSequenced() {
+        while (true) {
+            boolean later = false;
+            for (Lane<E> lane : lanes) {
+                if (lane.length == 0) {
+                    continue;
+                }
+                lane.lock.lock();
+                try {
+                    if (lane.elements.isEmpty()) {
+                        continue;
+                    }
+                    if (lane.sequences.first() == nextSequence) {
+                        nextSequence++;
+                        lane.length--;
+                        lane.sequences.removeFirst();
+                        return lane.elements.removeFirst();
+                    }
+                    later = true;
+                }
+                finally {
+                    lane.lock.unlock();
+                }
+            }
+            if (!later) {
+                return null;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public E removeFirst() throws IllegalStateException {
+        E element = poll();
+        if (element == null) {
+            throw new IllegalStateException();
+        }
+        return element;
+    }
+
+    /**
+     * Removes up to <code>maxElements</code> elements and passes them to the
+     * specified consumer, taking a batch from each lane in turn. Each lane is
+     * locked once per batch.
+     *
+     * @param consumer    the consumer receiving the elements
+     * @param maxElements the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws IllegalArgumentException if the consumer is null or
+     *                                  maxElements is negative
+     */
+    @Override
+    public int drain(Consumer<? super E> consumer, int maxElements)
+            throws IllegalArgumentException {
+        if (consumer == null || maxElements < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        if (globalSequence) {
+            int count = 0;
+            E element;
+            while (count < maxElements && (element = poll()) != null) {
+                count++;
+                consumer.accept(element);
+            }
+            return count;
+        }
+
+        int count = 0;
+        int start = cursor.getAndIncrement();
+        for (int i = 0; i < lanes.length && count < maxElements; i++) {
+            Lane<E> lane = lanes[Math.floorMod(start + i, lanes.length)];
+            if (lane.length == 0) {
+                continue;
+            }
+            lane.lock.lock();
+            try {
+                try {
+                    count += lane.elements.drain(consumer, maxElements - count);
+                }
+                finally {
+                    lane.length = lane.elements.length();
+                }
+            }
+            finally {
+                lane.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int drainFirst(E[] dest, int offset, int maxElements)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkRange(dest, offset, maxElements);
+
+        int[] count = new int[1];
+        return drain(e -> dest[offset + count[0]++] = e, maxElements);
+    }
+
+    @Override
+    public E first() {
+        E first = null;
+        long min = Long.MAX_VALUE;
+        int start = cursor.get();
+        for (int i = 0; i < lanes.length; i++) {
+            Lane<E> lane = lanes[Math.floorMod(start + i, lanes.length)];
+            lane.lock.lock();
+            try {
+                if (lane.elements.isEmpty()) {
+                    continue;
+                }
+                if (!globalSequence) {
+                    return lane.elements.first();
+                }
+                if (lane.sequences.first() < min) {
+                    min = lane.sequences.first();
+                    first = lane.elements.first();
+                }
+            }
+            finally {
+                lane.lock.unlock();
+            }
+        }
+        return first;
+    }
+
+    @Override
+    public E last() {
+        List<E> elements = snapshot();
+        return elements.isEmpty() ? null : elements.get(elements.size() - 1);
+    }
+
+    /**
+     * Not supported: each lane only grows at its end.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void prepend(E element) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Not supported: consumers take from the beginning of the lanes.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public E removeLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int length() {
+        int length = 0;
+        for (Lane<E> lane : lanes) {
+            length += lane.length;
+        }
+        return length;
+    }
+
+    @Override
+    public Pipe<E> newInstance() {
+        return new StripedPipe<>(capacity(), lanes.length, globalSequence);
+    }
+
+    /**
+     * Returns a copy holding the same elements in the same lanes, taken
+     * while every lane is locked.
+     *
+     * @return a copy of this pipe
+     */
+    @Override
+    public Pipe<E> copy() {
+        StripedPipe<E> result =
+                new StripedPipe<>(capacity(), lanes.length, globalSequence);
+        consumerLock.lock();
+        lockAll();
+        try {
+            for (int i = 0; i < lanes.length; i++) {
+                Lane<E> from = lanes[i];
+                Lane<E> to = result.lanes[i];
+                for (E element : from.elements) {
+                    to.elements.append(element);
+                }
+                if (globalSequence) {
+                    PrimitiveIterator.OfLong numbers = from.sequences.iterator();
+                    while (numbers.hasNext()) {
+                        to.sequences.append(numbers.nextLong());
+                    }
+                }
+                to.length = from.elements.length();
+            }
+            result.cursor.set(cursor.get());
+            result.sequence.set(sequence.get());
+            result.nextSequence = nextSequence;
+        }
+        finally {
+            unlockAll();
+            consumerLock.unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        consumerLock.lock();
+        lockAll();
+        try {
+            for (Lane<E> lane : lanes) {
+                lane.elements.clear();
+                lane.length = 0;
+                if (globalSequence) {
+                    lane.sequences.clear();
+                }
+            }
+            nextSequence = sequence.get();
+        }
+        finally {
+            unlockAll();
+            consumerLock.unlock();
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements that were in this pipe when it
+     * was created, taking one element from each lane in turn, or by number
+     * in global-sequence mode.
+     *
+     * @return an iterator over a snapshot of the elements
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return snapshot().iterator();
+    }
+
+    /**
+     * Copies the elements, one from each lane in turn starting at the
+     * cursor, or by number in global-sequence mode.
+     */
+    private List<E> snapshot() {
+        lockAll();
+        try {
+            int n = lanes.length;
+            List<Iterator<E>> elements = new ArrayList<>(n);
+            List<SequenceCursor> sequences = new ArrayList<>(n);
+            int start = cursor.get();
+            int total = 0;
+            for (int i = 0; i < n; i++) {
+                Lane<E> lane = lanes[Math.floorMod(start + i, n)];
+                elements.add(lane.elements.iterator());
+                if (globalSequence) {
+                    sequences.add(new SequenceCursor(lane.sequences));
+                }
+                total += lane.elements.length();
+            }
+
+            List<E> result = new ArrayList<>(total);
+            while (result.size() < total) {
+                if (globalSequence) {
+                    int min = -1;
+                    for (int i = 0; i < n; i++) {
+                        SequenceCursor s = sequences.get(i);
+                        if (s.hasCurrent() && (min < 0
+                                || s.current < sequences.get(min).current)) {
+                            min = i;
+                        }
+                    }
+                    sequences.get(min).advance();
+                    result.add(elements.get(min).next());
+                }
+                else {
+                    for (Iterator<E> lane : elements) {
+                        if (lane.hasNext()) {
+                            result.add(lane.next());
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+        finally {
+            unlockAll();
+        }
+    }
+
+    private int laneOf(int hash) {
+        int h = hash ^ (hash >>> 16);
+        return Math.floorMod(h * 0x9E3779B9, lanes.length);
+    }
+
+    private void lockAll() {
+        for (Lane<E> lane : lanes) {
+            lane.lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (Lane<E> lane : lanes) {
+            lane.lock.unlock();
+        }
+    }
+
+    /**
+     * Iterator over the numbers of a lane, holding the current one.
+     */
+    private static class SequenceCursor {
+        private final PrimitiveIterator.OfLong iterator;
+        private long current;
+        private boolean hasCurrent;
+
+        SequenceCursor(LongPipe sequences) {
+            iterator = sequences.iterator();
+            advance();
+        }
+
+        boolean hasCurrent() {
+            return hasCurrent;
+        }
+
+        void advance() {
+            hasCurrent = iterator.hasNext();
+            if (hasCurrent) {
+                current = iterator.nextLong();
+            }
+        }
+    }
+
+    /**
+     * Lane of elements with its lock, and the numbers of its elements in
+     * global-sequence mode.
+     */
+    private static class Lane<E> {
+        final ReentrantLock lock = new ReentrantLock();
+        final CircArrayPipe<E> elements;
+        final LongPipe sequences;
+        /**
+         * The number of elements, written under the lock and read without
+         * it, so that full and empty lanes are skipped without locking.
+         */
+        volatile int length;
+
+        Lane(int capacity, boolean globalSequence) {
+            elements = new CircArrayPipe<>(capacity);
+            sequences = globalSequence ? new LongPipe(capacity) : null;
+        }
+    }
+}
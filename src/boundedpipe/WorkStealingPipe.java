@@ -0,0 +1,306 @@
+package boundedpipe;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Lock-free work-stealing deque after Chase and Lev, with a fixed capacity.
+ * One owner thread adds and removes at the end, as a stack of its own work,
+ * while any number of thieves take from the beginning, the oldest work.
+ * </p>
+ * <p>
+ * The owner may call {@link #append(Object)}, {@link #offer(Object)},
+ * {@link #removeLast()}, {@link #pollLast()}, {@link #last()},
+ * {@link #clear()}, {@link #appendAll(Pipe)}, the batch appends and
+ * {@link #iterator()}. Any thread may call {@link #stealFirst()},
+ * {@link #removeFirst()}, the drain methods, {@link #first()} and
+ * {@link #length()}. {@link #prepend(Object)} is not supported, since
+ * thieves only move the beginning forward.
+ * </p>
+ * <p>
+ * <code>top</code> and <code>bottom</code> count the positions at the
+ * beginning and the end. The owner pushes by storing the element and
+ * releasing <code>bottom + 1</code>. Thieves claim <code>top</code> with a
+ * compare-and-set. The owner pops by first lowering <code>bottom</code>,
+ * then reading <code>top</code>, and only competes with the thieves through
+ * the same compare-and-set when a single element is left. A stolen slot
+ * keeps its reference until the owner writes that slot again.
+ * </p>
+ * <p>
+ * As in {@link CircArrayPipe}, the array is rounded up to a power of two and
+ * a position is turned into an index with a mask. <code>top</code> and
+ * <code>bottom</code> are kept on separate cache lines by unused
+ * <code>long</code> fields around them; HotSpot lays out fields of the same
+ * size in the order they are declared.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @param <E> the type of elements in this pipe
+ * @version 1.0
+ */
+public class WorkStealingPipe<E> extends AbstractPipe<E> {
+    private static final VarHandle TOP;
+    private static final VarHandle BOTTOM;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TOP = lookup.findVarHandle(WorkStealingPipe.class, "top", long.class);
+            BOTTOM = lookup.findVarHandle(WorkStealingPipe.class, "bottom",
+                    long.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final private E[] elements;
+    final private int mask;
+
+    private long p00, p01, p02, p03, p04, p05, p06;
+    /** Moved forward by thieves, and by the owner taking the last element. */
+    private long top;
+    private long p10, p11, p12, p13, p14, p15, p16;
+    /** Written by the owner only. */
+    private long bottom;
+    private long p20, p21, p22, p23, p24, p25, p26;
+
+    /**
+     * Constructor
+     *
+     * @param capacity the number of element that this pipe can hold
+     * @throws IllegalArgumentException if the capacity is greater than 2^30
+     */
+    @SuppressWarnings("unchecked")
+    public WorkStealingPipe(int capacity) throws IllegalArgumentException {
+        super(capacity);
+        if (capacity > CircArrayPipe.MAX_STORAGE) {
+            throw new IllegalArgumentException();
+        }
+        int storage = capacity <= 1
+                ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        elements = (E[]) new Object[storage];
+        mask = storage - 1;
+    }
+
+    /**
+     * Adds the specified element to the end of this pipe if it is not full.
+     * Owner only.
+     *
+     * @param element the element to be appended to this pipe
+     * @return true if the element was added, false if this pipe is full
+     * @throws IllegalArgumentException if the specified element is null
+     */
+    public boolean offer(E element) throws IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException();
+        }
+
+        long b = bottom;
+        long t = (long) TOP.getAcquire(this);
+        if (b - t >= capacity()) {
+            return false;
+        }
+
+        elements[(int) (b & mask)] = element;
+        BOTTOM.setRelease(this, b + 1);
+        return true;
+    }
+
+    /**
+     * Removes and returns the last element of this pipe, or returns null if
+     * this pipe is empty or a thief took the last element. Owner only.
+     *
+     * @return the last element of this pipe, or null
+     */
+    public E pollLast() {
+        long b = bottom - 1;
+        BOTTOM.setVolatile(this, b);
+        long t = (long) TOP.getVolatile(this);
+        if (t > b) {
+            BOTTOM.setRelease(this, b + 1);
+            return null;
+        }
+
+        int index = (int) (b & mask);
+        E element = elements[index];
+        if (t == b) {
+            boolean won = TOP.compareAndSet(this, t, t + 1);
+            BOTTOM.setRelease(this, b + 1);
+            if (!won) {
+                element = null;
+            }
+        }
+        // A thief that read this slot has either lost its compare-and-set or
+        // won it before ours.
+        elements[index] = null;
+        return element;
+    }
+
+    /**
+     * Removes and returns the first element of this pipe, or returns null if
+     * this pipe is empty. May be called from any thread.
+     *
+     * @return the first element of this pipe, or null if it is empty
+     */
+    public E stealFirst() {
+        while (true) {
+            long t = (long) TOP.getVolatile(this);
+            long b = (long) BOTTOM.getVolatile(this);
+            if (t >= b) {
+                return null;
+            }
+
+            E element = elements[(int) (t & mask)];
+            if (TOP.compareAndSet(this, t, t + 1)) {
+                return element;
+            }
+        }
+    }
+
+    @Override
+    public int drainFirst(E[] dest, int offset, int maxElements)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkRange(dest, offset, maxElements);
+
+        int count = 0;
+        E element;
+        while (count < maxElements && (element = stealFirst()) != null) {
+            dest[offset + count] = element;
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int drain(Consumer<? super E> consumer, int maxElements)
+            throws IllegalArgumentException {
+        if (consumer == null || maxElements < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        int count = 0;
+        E element;
+        while (count < maxElements && (element = stealFirst()) != null) {
+            count++;
+            consumer.accept(element);
+        }
+        return count;
+    }
+
+    @Override
+    public E first() {
+        long t = (long) TOP.getAcquire(this);
+        if (t >= (long) BOTTOM.getAcquire(this)) {
+            return null;
+        }
+        return elements[(int) (t & mask)];
+    }
+
+    @Override
+    public E last() {
+        long b = bottom;
+        if (b <= (long) TOP.getAcquire(this)) {
+            return null;
+        }
+        return elements[(int) ((b - 1) & mask)];
+    }
+
+    /**
+     * Not supported: thieves own the beginning of this pipe.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void prepend(E element) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void append(E element) throws IllegalStateException,
+            IllegalArgumentException {
+        if (!offer(element)) {
+            throw new IllegalStateException();
+        }
+    }
+
+    @Override
+    public E removeFirst() throws IllegalStateException {
+        E element = stealFirst();
+        if (element == null) {
+            throw new IllegalStateException();
+        }
+        return element;
+    }
+
+    @Override
+    public E removeLast() throws IllegalStateException {
+        E element = pollLast();
+        if (element == null) {
+            throw new IllegalStateException();
+        }
+        return element;
+    }
+
+    /**
+     * Returns the number of elements in this pipe. When thieves are running
+     * the result is only a snapshot.
+     *
+     * @return the number of elements in this pipe
+     */
+    @Override
+    public int length() {
+        long t = (long) TOP.getAcquire(this);
+        long b = (long) BOTTOM.getAcquire(this);
+        return (int) Math.max(0, Math.min(capacity(), b - t));
+    }
+
+    @Override
+    public Pipe<E> newInstance() {
+        return new WorkStealingPipe<>(capacity());
+    }
+
+    @Override
+    public void clear() {
+        while (pollLast() != null) {
+            // drop the element
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements that were in this pipe when it
+     * was created. Owner only, and only exact while no thief is running.
+     *
+     * @return an iterator from the first to the last element
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new PipeIterator();
+    }
+
+    /**
+     * Pipe iterator
+     */
+    class PipeIterator implements Iterator<E> {
+        private long ptr = (long) TOP.getAcquire(WorkStealingPipe.this);
+        private final long end = bottom;
+
+        @Override
+        public boolean hasNext() {
+            return ptr < end;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return elements[(int) (ptr++ & mask)];
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package boundedpipe;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Fixed pool of worker threads, each with a bounded {@link WorkStealingPipe}
+ * of tasks.
+ * </p>
+ * <p>
+ * A task submitted from a worker of this pool is appended to that worker's
+ * own pipe, or run at once if the pipe is full, so fork/join style jobs keep
+ * their memory bounded. Tasks submitted from other threads go through a
+ * shared {@link LockedBlockingPipe}, and the submitter waits while it is
+ * full. A worker runs its own newest task first, then takes from the shared
+ * pipe, then steals the oldest task of another worker, starting from a
+ * random one. With nothing to do it waits on the shared pipe, which wakes
+ * it as soon as a task is submitted, and looks at the other workers again
+ * after the wait runs out; each empty wait is twice as long as the one
+ * before, up to 10 milliseconds, so an idle pool hardly wakes up, at the
+ * cost of tasks forked by a busy worker waiting longer to be stolen.
+ * </p>
+ * <p>
+ * A task waiting for tasks it forked should call {@link #helpOne()} in its
+ * loop instead of blocking, so that the worker keeps running tasks. A task
+ * that throws is reported to the worker's uncaught exception handler and the
+ * worker goes on.
+ * </p>
+ *
+ * @author pohan(pohan)
+ * @version 1.0
+ */
+public class WorkStealingPool implements Executor {
+    private static final long IDLE_MICROS = 100;
+    private static final long MAX_IDLE_MICROS = 10000;
+
+    private final Worker[] workers;
+    private final LockedBlockingPipe<Runnable> submissions;
+    private final CountDownLatch terminated;
+    private final LongAdder steals = new LongAdder();
+    /** The number of submitters between their check for shutdown and put. */
+    private final AtomicInteger submitting = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    /**
+     * Constructor. Starts the workers.
+     *
+     * @param parallelism   the number of workers
+     * @param dequeCapacity the number of tasks each worker's pipe and the
+     *                      shared pipe can hold
+     * @throws IllegalArgumentException if an argument is not positive
+     */
+    public WorkStealingPool(int parallelism, int dequeCapacity)
+            throws IllegalArgumentException {
+        if (parallelism <= 0 || dequeCapacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        submissions = new LockedBlockingPipe<>(dequeCapacity);
+        terminated = new CountDownLatch(parallelism);
+        workers = new Worker[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = new Worker(i, dequeCapacity);
+        }
+        for (Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Runs the specified task on a worker of this pool.
+     *
+     * @param task the task to run
+     * @throws IllegalArgumentException   if the task is null
+     * @throws RejectedExecutionException if this pool is shut down, or the
+     *                                    submitter is interrupted while
+     *                                    waiting for the shared pipe
+     */
+    @Override
+    public void execute(Runnable task) throws IllegalArgumentException,
+            RejectedExecutionException {
+        if (task == null) {
+            throw new IllegalArgumentException();
+        }
+
+        Worker worker = currentWorker();
+        if (worker != null) {
+            if (!worker.tasks.offer(task)) {
+                run(task);
+            }
+            return;
+        }
+
+        // Counted before shutdown is checked, so that the workers do not
+        // stop before a task accepted here is in the shared pipe.
+        submitting.incrementAndGet();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException();
+            }
+            submissions.putLast(task);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+        finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Runs one pending task, if there is one, on the calling worker.
+     *
+     * @return true if a task was run
+     * @throws IllegalStateException if the caller is not a worker of this
+     *                               pool
+     */
+    public boolean helpOne() throws IllegalStateException {
+        Worker worker = currentWorker();
+        if (worker == null) {
+            throw new IllegalStateException();
+        }
+
+        Runnable task = worker.find();
+        if (task == null) {
+            return false;
+        }
+        run(task);
+        return true;
+    }
+
+    /**
+     * Stops accepting tasks from other threads. The workers stop once no
+     * task is left anywhere in the pool.
+     */
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    /**
+     * Waits until every worker has stopped or the specified time runs out.
+     *
+     * @param timeout how long to wait
+     * @param unit    the unit of the timeout
+     * @return true if every worker has stopped
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * Returns the number of workers.
+     *
+     * @return the number of workers
+     */
+    public int parallelism() {
+        return workers.length;
+    }
+
+    /**
+     * Returns the number of tasks workers have stolen from each other.
+     *
+     * @return the number of stolen tasks
+     */
+    public long stealCount() {
+        return steals.sum();
+    }
+
+    private Worker currentWorker() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof Worker && ((Worker) thread).pool() == this) {
+            return (Worker) thread;
+        }
+        return null;
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        }
+        catch (RuntimeException e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    /**
+     * Worker thread owning one pipe of tasks.
+     */
+    class Worker extends Thread {
+        private final int index;
+        private final WorkStealingPipe<Runnable> tasks;
+        private final Runnable[] taken = new Runnable[1];
+
+        Worker(int index, int capacity) {
+            super("work-stealing-" + index);
+            this.index = index;
+            this.tasks = new WorkStealingPipe<>(capacity);
+            setDaemon(true);
+        }
+
+        WorkStealingPool pool() {
+            return WorkStealingPool.this;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long idleMicros = IDLE_MICROS;
+                while (true) {
+                    Runnable task = find();
+                    if (task == null) {
+                        task = submissions.pollFirst(idleMicros,
+                                TimeUnit.MICROSECONDS);
+                    }
+                    if (task != null) {
+                        idleMicros = IDLE_MICROS;
+                        WorkStealingPool.run(task);
+                    }
+                    else if (shutdown && submitting.get() == 0 && isQuiet()) {
+                        break;
+                    }
+                    else {
+                        idleMicros = Math.min(idleMicros * 2, MAX_IDLE_MICROS);
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                // Stop at once.
+            }
+            finally {
+                terminated.countDown();
+            }
+        }
+
+        /**
+         * Takes this worker's newest task, else a submitted task, else the
+         * oldest task of another worker.
+         */
+        Runnable find() {
+            Runnable task = tasks.pollLast();
+            if (task != null) {
+                return task;
+            }
+
+            if (submissions.drainFirst(taken, 0, 1) == 1) {
+                task = taken[0];
+                taken[0] = null;
+                return task;
+            }
+
+            int n = workers.length;
+            int start = ThreadLocalRandom.current().nextInt(n);
+            for (int i = 0; i < n; i++) {
+                Worker victim = workers[(start + i) % n];
+                if (victim != this) {
+                    task = victim.tasks.stealFirst();
+                    if (task != null) {
+                        steals.increment();
+                        return task;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return "Worker[" + index + ", tasks=" + tasks.length() + "]";
+        }
+    }
+
+    /**
+     * Returns whether no task is left in any pipe of this pool.
+     */
+    private boolean isQuiet() {
+        if (!submissions.isEmpty()) {
+            return false;
+        }
+        for (Worker worker : workers) {
+            if (!worker.tasks.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
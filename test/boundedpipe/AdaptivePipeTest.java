@@ -0,0 +1,98 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AdaptivePipeTest {
+
+    private static final int LARGE = PipeBuilder.SMALL_CAPACITY * 4;
+    /** Enough changes for one occupancy decision. */
+    private static final int WINDOW_CHANGES =
+            AdaptivePipe.SAMPLE_INTERVAL * AdaptivePipe.WINDOW;
+
+    private AdaptivePipe<String> pipeABC6;
+
+    @Before
+    public void setUp() {
+        pipeABC6 = new AdaptivePipe<>(6);
+        pipeABC6.append("A");
+        pipeABC6.append("B");
+        pipeABC6.append("C");
+    }
+
+    @Test
+    public void operations_ABC_delegated() {
+        pipeABC6.prepend("X");
+        assertEquals("X", pipeABC6.first());
+        assertEquals("C", pipeABC6.last());
+        assertEquals("C", pipeABC6.removeLast());
+        assertEquals("X", pipeABC6.removeFirst());
+        assertEquals("[A, B]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void copy_ABC() {
+        Pipe<String> copy = pipeABC6.copy();
+        assertEquals(pipeABC6, copy);
+        assertTrue(copy instanceof AdaptivePipe);
+    }
+
+    @Test
+    public void drainTo_ABC_ABC() {
+        List<String> list = new ArrayList<>();
+        assertEquals(3, pipeABC6.drainTo(list, 5));
+        assertEquals(Arrays.asList("A", "B", "C"), list);
+        assertTrue(pipeABC6.isEmpty());
+    }
+
+    @Test
+    public void constructor_largeLowOccupancy_segmented() {
+        AdaptivePipe<Integer> p = new AdaptivePipe<>(LARGE, 0.01);
+        assertTrue(p.delegate() instanceof SegmentedPipe);
+    }
+
+    @Test
+    public void adapt_largeMostlyEmpty_movesToSegmented() {
+        AdaptivePipe<Integer> p = new AdaptivePipe<>(LARGE);
+        assertTrue(p.delegate() instanceof CircArrayPipe);
+        p.append(-1);
+        for (int i = 0; i < WINDOW_CHANGES; i++) {
+            p.append(i);
+            p.removeLast();
+        }
+        assertTrue(p.delegate() instanceof SegmentedPipe);
+        assertEquals("[-1]:" + LARGE, p.toString());
+    }
+
+    @Test
+    public void adapt_largeMostlyFull_movesToArray() {
+        AdaptivePipe<Integer> p = new AdaptivePipe<>(LARGE, 0.01);
+        for (int i = 0; i < LARGE - 1; i++) {
+            p.append(i);
+        }
+        for (int i = 0; i < WINDOW_CHANGES; i++) {
+            p.append(i);
+            p.removeLast();
+        }
+        assertTrue(p.delegate() instanceof CircArrayPipe);
+        assertEquals(LARGE - 1, p.length());
+        assertEquals(0, p.first().intValue());
+        assertEquals(LARGE - 2, p.last().intValue());
+    }
+
+    @Test
+    public void adapt_smallMostlyEmpty_staysArray() {
+        AdaptivePipe<Integer> p = new AdaptivePipe<>(64);
+        for (int i = 0; i < WINDOW_CHANGES; i++) {
+            p.append(i);
+            p.removeFirst();
+        }
+        assertTrue(p.delegate() instanceof CircArrayPipe);
+    }
+}
@@ -0,0 +1,167 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.*;
+
+public class BatchingConsumerTest {
+
+    private Pipe<Integer> pipe64;
+    private List<List<Integer>> batches;
+
+    @Before
+    public void setUp() {
+        pipe64 = new CircArrayPipe<>(64);
+        batches = new ArrayList<>();
+    }
+
+    private void fill(int n) {
+        for (int i = 0; i < n; i++) {
+            pipe64.append(i);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_nullPipe_exception() {
+        new BatchingConsumer<Integer>(null, b -> { }, 8, 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_batch0_exception() {
+        new BatchingConsumer<>(pipe64, b -> { }, 0, 100);
+    }
+
+    @Test
+    public void poll_empty_0() {
+        BatchingConsumer<Integer> consumer = new BatchingConsumer<>(pipe64,
+                batches::add, 8, 0);
+        assertEquals(0, consumer.poll());
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void poll_ABC_partialBatchAfterWait() {
+        fill(3);
+        BatchingConsumer<Integer> consumer = new BatchingConsumer<>(pipe64,
+                b -> batches.add(new ArrayList<>(b)), 8, 50);
+        assertEquals(3, consumer.poll());
+        assertEquals(Arrays.asList(Arrays.asList(0, 1, 2)), batches);
+        assertEquals(8, consumer.batchSize());
+    }
+
+    @Test
+    public void poll_sameBufferEveryBatch() {
+        fill(10);
+        List<List<Integer>> seen = new ArrayList<>();
+        BatchingConsumer<Integer> consumer = new BatchingConsumer<>(pipe64,
+                seen::add, 4, 0);
+        consumer.poll();
+        consumer.poll();
+        assertSame(seen.get(0), seen.get(1));
+        assertTrue(seen.get(0).isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void poll_handlerModifiesBatch_exception() {
+        fill(1);
+        new BatchingConsumer<>(pipe64, b -> b.clear(), 4, 0).poll();
+    }
+
+    @Test
+    public void poll_backlog_batchSizeGrows() {
+        fill(64);
+        BatchingConsumer<Integer> consumer = new BatchingConsumer<>(pipe64,
+                b -> { }, 32, 0);
+        assertEquals(16, consumer.poll());
+        assertEquals(18, consumer.batchSize());
+        assertEquals(18, consumer.poll());
+        assertEquals(20, consumer.batchSize());
+        assertEquals(20, consumer.poll());
+        // Only 10 left: not full, so no growth.
+        assertEquals(10, consumer.poll());
+        assertEquals(22, consumer.batchSize());
+        assertEquals(4, consumer.batchCount());
+        assertEquals(64, consumer.elementCount());
+    }
+
+    @Test
+    public void poll_latencyTargetMissed_batchSizeHalved() {
+        fill(64);
+        BatchingConsumer<Integer> consumer = new BatchingConsumer<>(pipe64,
+                b -> LockSupport.parkNanos(2000000), 32, 0, 1000);
+        assertEquals(16, consumer.poll());
+        assertEquals(8, consumer.batchSize());
+        assertEquals(8, consumer.poll());
+        assertEquals(4, consumer.batchSize());
+    }
+
+    @Test
+    public void poll_partialBatchWaitOverTarget_batchSizeKept() {
+        fill(3);
+        BatchingConsumer<Integer> consumer = new BatchingConsumer<>(pipe64,
+                batches::add, 32, 5000, 1000);
+        assertEquals(3, consumer.poll());
+        assertEquals(16, consumer.batchSize());
+    }
+
+    @Test(timeout = 10000)
+    public void run_idle_backsOff() throws InterruptedException {
+        AtomicInteger polls = new AtomicInteger();
+        SpscArrayPipe<Integer> counted = new SpscArrayPipe<Integer>(64) {
+            @Override
+            public int drainTo(Collection<? super Integer> collection,
+                    int maxElements) {
+                polls.incrementAndGet();
+                return super.drainTo(collection, maxElements);
+            }
+        };
+        List<Integer> out = Collections.synchronizedList(new ArrayList<>());
+        BatchingConsumer<Integer> consumer = new BatchingConsumer<>(counted,
+                out::addAll, 8, 0);
+        Thread worker = new Thread(consumer);
+        worker.start();
+        Thread.sleep(200);
+        assertTrue(polls.get() < 1000);
+
+        counted.append(1);
+        while (out.isEmpty()) {
+            Thread.sleep(1);
+        }
+        consumer.stop();
+        worker.join();
+        assertEquals(Arrays.asList(1), out);
+    }
+
+    @Test(timeout = 10000)
+    public void run_producerThread_allInOrder() throws InterruptedException {
+        final int n = 100000;
+        SpscArrayPipe<Integer> spsc = new SpscArrayPipe<>(256);
+        List<Integer> out = new ArrayList<>();
+        BatchingConsumer<Integer> consumer = new BatchingConsumer<>(spsc,
+                out::addAll, 128, 100, 10000);
+        Thread worker = new Thread(consumer);
+        worker.start();
+        for (int i = 0; i < n; i++) {
+            while (!spsc.offer(i)) {
+                Thread.yield();
+            }
+        }
+        consumer.stop();
+        worker.join();
+
+        assertEquals(n, out.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, out.get(i).intValue());
+        }
+        assertEquals(n, consumer.elementCount());
+    }
+}
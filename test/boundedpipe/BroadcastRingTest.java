@@ -0,0 +1,170 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BroadcastRingTest {
+
+    private BroadcastRing<String> ring3;
+
+    @Before
+    public void setUp() {
+        ring3 = new BroadcastRing<>(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_capacity0_exception() {
+        new BroadcastRing<String>(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void publishNull_exception() {
+        ring3.publish(null);
+    }
+
+    @Test
+    public void publish_noCursor_neverFull() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(ring3.offer("A" + i));
+        }
+        assertEquals(3, ring3.remainingCapacity());
+    }
+
+    @Test
+    public void poll_twoCursors_bothSeeABC() {
+        BroadcastRing.Cursor<String> a = ring3.subscribe();
+        BroadcastRing.Cursor<String> b = ring3.subscribe();
+        ring3.publish("A");
+        ring3.publish("B");
+        ring3.publish("C");
+
+        assertEquals("A", a.poll());
+        assertEquals("B", a.poll());
+        assertEquals("C", a.poll());
+        assertNull(a.poll());
+        assertEquals(3, b.length());
+        assertEquals("A", b.peek());
+        assertEquals("A", b.poll());
+        assertEquals(2, b.length());
+    }
+
+    @Test
+    public void offer_slowestCursorBehind_gated() {
+        BroadcastRing.Cursor<String> fast = ring3.subscribe();
+        BroadcastRing.Cursor<String> slow = ring3.subscribe();
+        ring3.publish("A");
+        ring3.publish("B");
+        ring3.publish("C");
+        fast.drain(e -> { }, 3);
+        assertFalse(ring3.offer("D"));
+        assertEquals(0, ring3.remainingCapacity());
+
+        assertEquals("A", slow.poll());
+        assertTrue(ring3.offer("D"));
+        assertEquals("D", fast.poll());
+        assertEquals("B", slow.poll());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void publish_full_exception() {
+        ring3.subscribe();
+        for (int i = 0; i < 4; i++) {
+            ring3.publish("A" + i);
+        }
+    }
+
+    @Test
+    public void subscribe_afterPublish_seesLaterOnly() {
+        ring3.publish("A");
+        BroadcastRing.Cursor<String> late = ring3.subscribe();
+        assertNull(late.poll());
+        ring3.publish("B");
+        assertEquals("B", late.poll());
+        assertEquals(2, late.sequence());
+    }
+
+    @Test
+    public void close_slowCursor_producerFreed() {
+        BroadcastRing.Cursor<String> slow = ring3.subscribe();
+        for (int i = 0; i < 3; i++) {
+            ring3.publish("A" + i);
+        }
+        assertFalse(ring3.offer("X"));
+        slow.close();
+        assertTrue(slow.isClosed());
+        assertEquals(0, ring3.subscriberCount());
+        assertTrue(ring3.offer("X"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void poll_closed_exception() {
+        BroadcastRing.Cursor<String> cursor = ring3.subscribe();
+        cursor.close();
+        cursor.poll();
+    }
+
+    @Test
+    public void drain_wrapped_inOrder() {
+        BroadcastRing.Cursor<String> cursor = ring3.subscribe();
+        StringBuilder sb = new StringBuilder();
+        for (String s : new String[] {"A", "B", "C", "D", "E"}) {
+            ring3.publish(s);
+            cursor.drain(sb::append, 1);
+        }
+        ring3.publish("F");
+        ring3.publish("G");
+        assertEquals(2, cursor.drain(sb::append, 5));
+        assertEquals("ABCDEFG", sb.toString());
+    }
+
+    @Test(timeout = 20000)
+    public void publish_threeConsumerThreads_allSeeAllInOrder()
+            throws InterruptedException {
+        final int n = 100000;
+        BroadcastRing<Integer> ring = new BroadcastRing<>(64);
+        List<Thread> consumers = new ArrayList<>();
+        long[] sums = new long[3];
+        boolean[] ordered = new boolean[3];
+        for (int c = 0; c < 3; c++) {
+            final int id = c;
+            BroadcastRing.Cursor<Integer> cursor = ring.subscribe();
+            Thread consumer = new Thread(() -> {
+                int expected = 0;
+                boolean inOrder = true;
+                long sum = 0;
+                while (expected < n) {
+                    Integer e = cursor.poll();
+                    if (e == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    inOrder &= e == expected;
+                    expected++;
+                    sum += e;
+                }
+                sums[id] = sum;
+                ordered[id] = inOrder;
+            });
+            consumers.add(consumer);
+            consumer.start();
+        }
+
+        for (int i = 0; i < n; i++) {
+            while (!ring.offer(i)) {
+                Thread.yield();
+            }
+        }
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+        for (int c = 0; c < 3; c++) {
+            assertTrue(ordered[c]);
+            assertEquals((long) n * (n - 1) / 2, sums[c]);
+        }
+    }
+}
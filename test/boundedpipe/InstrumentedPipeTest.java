@@ -0,0 +1,246 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InstrumentedPipeTest {
+
+    private InstrumentedPipe<String> pipeABC6;
+    private InstrumentedPipe<String> pipeEmpty6;
+    private InstrumentedPipe<String> pipeFull3;
+
+    @Before
+    public void setUp() {
+        pipeABC6 = initPipe(6, "A", "B", "C");
+        pipeEmpty6 = initPipe(6);
+        pipeFull3 = initPipe(3, "A", "B", "C");
+    }
+
+    public InstrumentedPipe<String> initPipe(int capacity, String... args) {
+        InstrumentedPipe<String> p =
+                new InstrumentedPipe<>(new CircArrayPipe<>(capacity), true);
+        for (String s : args) {
+            p.append(s);
+        }
+        return p;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_null_exception() {
+        new InstrumentedPipe<String>(null);
+    }
+
+    @Test
+    public void append_overwritingFull_evictionCounted() {
+        InstrumentedPipe<String> p =
+                new InstrumentedPipe<>(new OverwritingRingPipe<>(2), true);
+        p.append("A");
+        p.append("B");
+        p.append("C");
+        p.prepend("X");
+        p.appendBatch(new String[] {"D", "E"}, 0, 2);
+        assertEquals("[D, E]:2", p.toString());
+        assertEquals(5, p.appendCount());
+        assertEquals(1, p.prependCount());
+        assertEquals(4, p.removeCount());
+        assertEquals(4, p.residenceSnapshot().count());
+        assertEquals("D", p.removeFirst());
+        assertEquals("E", p.removeFirst());
+        assertEquals(6, p.residenceSnapshot().count());
+    }
+
+    @Test
+    public void appendBatch_overwritingLargerThanCapacity_countersAgree() {
+        InstrumentedPipe<String> p =
+                new InstrumentedPipe<>(new OverwritingRingPipe<>(3), true);
+        p.append("A");
+        p.append("B");
+        p.appendBatch(new String[] {"C", "D", "E", "F", "G"}, 0, 5);
+        assertEquals("[E, F, G]:3", p.toString());
+        assertEquals(7, p.appendCount());
+        assertEquals(4, p.removeCount());
+        assertEquals(4, p.residenceSnapshot().count());
+
+        Pipe<String> more = new CircArrayPipe<>(4);
+        for (String s : new String[] {"H", "I", "J", "K"}) {
+            more.append(s);
+        }
+        p.appendAll(more);
+        assertEquals("[I, J, K]:3", p.toString());
+        assertEquals(8, p.removeCount());
+        assertEquals(3, p.drainFirst(new String[3], 0, 3));
+        assertEquals(11, p.residenceSnapshot().count());
+        p.append("L");
+        assertEquals("L", p.removeLast());
+    }
+
+    @Test
+    public void constructor_wrapLinked_ABC() {
+        Pipe<String> linkedPipe = new LinkedPipe<>(6);
+        linkedPipe.append("A");
+        linkedPipe.append("B");
+        linkedPipe.append("C");
+        InstrumentedPipe<String> p = new InstrumentedPipe<>(linkedPipe, true);
+        assertEquals(pipeABC6, p);
+        assertEquals(3, p.highWaterMark());
+        assertEquals(0, p.appendCount());
+        assertEquals("C", p.removeLast());
+        assertEquals(1, p.residenceSnapshot().count());
+    }
+
+    @Test
+    public void counters_ABC_counted() {
+        pipeABC6.prepend("X");
+        pipeABC6.removeFirst();
+        pipeABC6.removeLast();
+        assertEquals(3, pipeABC6.appendCount());
+        assertEquals(1, pipeABC6.prependCount());
+        assertEquals(2, pipeABC6.removeCount());
+        assertEquals(4, pipeABC6.highWaterMark());
+        assertEquals("[A, B]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void appendX_full_rejectionCounted() {
+        try {
+            pipeFull3.append("X");
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertEquals(1, pipeFull3.fullRejectionCount());
+            assertEquals(3, pipeFull3.appendCount());
+        }
+    }
+
+    @Test
+    public void removeFirst_empty_rejectionCounted() {
+        try {
+            pipeEmpty6.removeFirst();
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertEquals(1, pipeEmpty6.emptyRejectionCount());
+            assertEquals(0, pipeEmpty6.removeCount());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendNull_ABC_exception() {
+        pipeABC6.append(null);
+    }
+
+    @Test
+    public void appendNull_ABC_notCounted() {
+        try {
+            pipeABC6.append(null);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals(0, pipeABC6.fullRejectionCount());
+            assertEquals(3, pipeABC6.appendCount());
+        }
+    }
+
+    @Test
+    public void bulk_ABC_counted() {
+        pipeABC6.appendAll(initPipe(2, "D", "E"));
+        pipeABC6.appendBatch(new String[] {"F"}, 0, 1);
+        assertEquals(6, pipeABC6.highWaterMark());
+
+        List<String> list = new ArrayList<>();
+        assertEquals(2, pipeABC6.drainTo(list, 2));
+        String[] dest = new String[2];
+        assertEquals(2, pipeABC6.drainFirst(dest, 0, 2));
+        assertEquals(Arrays.asList("A", "B"), list);
+        assertArrayEquals(new String[] {"C", "D"}, dest);
+
+        assertEquals(6, pipeABC6.appendCount());
+        assertEquals(4, pipeABC6.removeCount());
+        assertEquals(4, pipeABC6.residenceSnapshot().count());
+        assertEquals("[E, F]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void residence_sleep_recorded() throws InterruptedException {
+        Thread.sleep(20);
+        pipeABC6.removeFirst();
+        ResidenceHistogram.Snapshot snapshot = pipeABC6.residenceSnapshot();
+        assertEquals(1, snapshot.count());
+        assertTrue(snapshot.percentile(50) >= 20_000_000L);
+        assertEquals(snapshot.max(), snapshot.percentile(100));
+    }
+
+    @Test
+    public void residence_clear_notRecorded() {
+        pipeABC6.clear();
+        pipeABC6.append("X");
+        assertEquals("X", pipeABC6.removeFirst());
+        assertEquals(1, pipeABC6.residenceSnapshot().count());
+    }
+
+    @Test
+    public void residence_off_null() {
+        InstrumentedPipe<String> p =
+                new InstrumentedPipe<>(new CircArrayPipe<>(6));
+        p.append("A");
+        p.removeFirst();
+        assertNull(p.residenceSnapshot());
+        assertEquals(1, p.removeCount());
+    }
+
+    @Test
+    public void resetStatistics_ABC_zero() {
+        pipeABC6.removeFirst();
+        pipeABC6.resetStatistics();
+        assertEquals(0, pipeABC6.appendCount());
+        assertEquals(0, pipeABC6.removeCount());
+        assertEquals(2, pipeABC6.highWaterMark());
+        assertEquals(0, pipeABC6.residenceSnapshot().count());
+    }
+
+    @Test
+    public void copy_ABC() {
+        Pipe<String> copy = pipeABC6.copy();
+        assertEquals(pipeABC6, copy);
+        assertTrue(copy instanceof InstrumentedPipe);
+    }
+
+    @Test
+    public void histogram_values_percentiles() {
+        ResidenceHistogram histogram = new ResidenceHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        ResidenceHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.count());
+        assertEquals(1_000_000L, snapshot.max());
+        assertEquals(500_500.0, snapshot.mean(), 0.001);
+        long p50 = snapshot.percentile(50);
+        assertTrue(p50 >= 500_000L && p50 <= 500_000L * 9 / 8);
+        long p99 = snapshot.percentile(99);
+        assertTrue(p99 >= 990_000L && p99 <= 1_000_000L);
+    }
+
+    @Test
+    public void histogram_bucketBounds_containValue() {
+        for (long v : new long[] {0, 1, 15, 16, 17, 31, 32, 1000, 123456789L,
+                Long.MAX_VALUE}) {
+            int bucket = ResidenceHistogram.bucketOf(v);
+            assertTrue(ResidenceHistogram.highestValueOf(bucket) >= v);
+            if (bucket > 0) {
+                assertTrue(ResidenceHistogram.highestValueOf(bucket - 1) < v);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void histogram_percentile101_exception() {
+        new ResidenceHistogram().snapshot().percentile(101);
+    }
+}
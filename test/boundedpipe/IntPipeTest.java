@@ -0,0 +1,163 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import static org.junit.Assert.*;
+
+public class IntPipeTest {
+
+    private IntPipe pipe1236;
+    private IntPipe pipeEmpty6;
+    private IntPipe pipeFull3;
+
+    @Before
+    public void setUp() {
+        pipe1236 = initPipe(6, 1, 2, 3);
+        pipeEmpty6 = initPipe(6);
+        pipeFull3 = initPipe(3, 1, 2, 3);
+    }
+
+    public IntPipe initPipe(int capacity, int... args) {
+        IntPipe p = new IntPipe(capacity);
+        for (int v : args) {
+            p.append(v);
+        }
+        return p;
+    }
+
+    @Test
+    public void length_123_3() {
+        assertEquals(3, pipe1236.length());
+        assertEquals(6, pipe1236.capacity());
+    }
+
+    @Test
+    public void firstLast_123_13() {
+        assertEquals(1, pipe1236.first());
+        assertEquals(3, pipe1236.last());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void first_empty_exception() {
+        pipeEmpty6.first();
+    }
+
+    @Test
+    public void prepend9_123_9123() {
+        pipe1236.prepend(9);
+        assertEquals("[9, 1, 2, 3]:6", pipe1236.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void append9_full_exception() {
+        pipeFull3.append(9);
+    }
+
+    @Test
+    public void removeFirstRemoveLast_123_2() {
+        assertEquals(1, pipe1236.removeFirst());
+        assertEquals(3, pipe1236.removeLast());
+        assertEquals(1, pipe1236.length());
+        assertEquals(2, pipe1236.first());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removeLast_empty_exception() {
+        pipeEmpty6.removeLast();
+    }
+
+    @Test
+    public void removeFirstAppend_wrapped_inOrder() {
+        pipeFull3.removeFirst();
+        pipeFull3.removeFirst();
+        pipeFull3.append(4);
+        pipeFull3.append(5);
+        assertEquals("[3, 4, 5]:3", pipeFull3.toString());
+    }
+
+    @Test
+    public void appendAll_wrapped_inOrder() {
+        IntPipe p = initPipe(4, 0, 0, 1);
+        p.removeFirst();
+        p.removeFirst();
+        p.appendAll(new int[] {9, 2, 3, 4, 9}, 1, 3);
+        assertEquals("[1, 2, 3, 4]:4", p.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void appendAll_tooMany_exception() {
+        pipe1236.appendAll(new int[] {4, 5, 6, 7}, 0, 4);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void appendAll_badRange_exception() {
+        pipe1236.appendAll(new int[] {4, 5}, 1, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendAllNull_exception() {
+        pipe1236.appendAll(null, 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void drainFirstNull_exception() {
+        pipe1236.drainFirst(null, 0, 1);
+    }
+
+    @Test
+    public void drainFirst_wrapped_inOrder() {
+        pipeFull3.removeFirst();
+        pipeFull3.append(4);
+        int[] dest = new int[5];
+        assertEquals(3, pipeFull3.drainFirst(dest, 1, 4));
+        assertArrayEquals(new int[] {0, 2, 3, 4, 0}, dest);
+        assertTrue(pipeFull3.isEmpty());
+    }
+
+    @Test
+    public void drainFirst_max1_first() {
+        int[] dest = new int[1];
+        assertEquals(1, pipe1236.drainFirst(dest, 0, 1));
+        assertEquals(1, dest[0]);
+        assertEquals(2, pipe1236.length());
+    }
+
+    @Test
+    public void toArray_123() {
+        assertArrayEquals(new int[] {1, 2, 3}, pipe1236.toArray());
+    }
+
+    @Test
+    public void iterator_123() {
+        PrimitiveIterator.OfInt it = pipe1236.iterator();
+        assertEquals(1, it.nextInt());
+        assertEquals(2, it.nextInt());
+        assertEquals(3, it.nextInt());
+        assertFalse(it.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void iterator_emptyOnce_exception() {
+        pipeEmpty6.iterator().nextInt();
+    }
+
+    @Test
+    public void equalsHashCode_copy_true() {
+        IntPipe copy = pipe1236.copy();
+        assertEquals(pipe1236, copy);
+        assertEquals(pipe1236.hashCode(), copy.hashCode());
+        assertNotEquals(pipe1236, initPipe(7, 1, 2, 3));
+        assertNotEquals(pipe1236, initPipe(6, 1, 2));
+    }
+
+    @Test
+    public void clear_123_empty() {
+        pipe1236.clear();
+        assertTrue(pipe1236.isEmpty());
+        assertEquals("[]:6", pipe1236.toString());
+    }
+}
@@ -3,8 +3,14 @@ package boundedpipe;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 import static org.junit.Assert.assertEquals;
@@ -374,6 +380,379 @@ public class LinkedPipeTest {
         assertEquals("[A, B, C, D, E]:6", pipeABC6.toString());
     }
 
+    @Test
+    public void appendAll_DEToABC_sourceEmpty() {
+        Pipe<String> p = initPipe(2, "D", "E");
+
+        pipeABC6.appendAll(p);
+
+        assertEquals(0, p.length());
+        assertEquals("[]:2", p.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void appendAll_ABCToFull_exception() {
+        pipeFull3.appendAll(initPipe(6, "A", "B", "C"));
+    }
+
+    @Test
+    public void appendAll_ABCToFull_unchanged() {
+        Pipe<String> p = initPipe(6, "D", "E", "F");
+        try {
+            pipeFull3.appendAll(p);
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertEquals("[A, B, C]:3", pipeFull3.toString());
+            assertEquals("[D, E, F]:6", p.toString());
+        }
+    }
+
+    @Test
+    public void appendAll_self_unchanged() {
+        pipeABC6.appendAll(pipeABC6);
+        assertEquals("[A, B, C]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void appendAll_manyElements_inOrder() {
+        int n = 100000;
+        Pipe<String> source = initPipe(n);
+        for (int i = 0; i < n; i++) {
+            source.append(String.valueOf(i));
+        }
+        Pipe<String> target = initPipe(n + 1, "A");
+
+        target.appendAll(source);
+
+        assertEquals(n + 1, target.length());
+        assertEquals(0, source.length());
+        assertEquals("A", target.removeFirst());
+        for (int i = 0; i < n; i++) {
+            assertEquals(String.valueOf(i), target.removeFirst());
+        }
+    }
+
+    @Test
+    public void appendAll_DEToEmpty_bothEnds() {
+        Pipe<String> p = initPipe(2, "D", "E");
+
+        pipeEmpty6.appendAll(p);
+
+        assertEquals("D", pipeEmpty6.first());
+        assertEquals("E", pipeEmpty6.last());
+        pipeEmpty6.prepend("C");
+        pipeEmpty6.append("F");
+        assertEquals("[C, D, E, F]:6", pipeEmpty6.toString());
+        assertEquals("F", pipeEmpty6.removeLast());
+        assertEquals("E", pipeEmpty6.removeLast());
+    }
+
+    @Test
+    public void recycling_removeAppend_inOrder() {
+        Pipe<String> p = new LinkedPipe<>(3, true);
+        p.append("A");
+        p.append("B");
+        p.append("C");
+        for (int i = 0; i < 4; i++) {
+            p.append(p.removeFirst());
+        }
+        p.prepend(p.removeLast());
+        assertEquals("[A, B, C]:3", p.toString());
+        assertEquals("A", p.removeFirst());
+        assertEquals("C", p.removeLast());
+        assertEquals("[B]:3", p.toString());
+    }
+
+    @Test
+    public void recycling_drainAppend_inOrder() {
+        Pipe<String> p = new LinkedPipe<>(3, true);
+        p.append("A");
+        p.append("B");
+        p.append("C");
+        String[] dest = new String[2];
+        p.drainFirst(dest, 0, 2);
+        p.append("D");
+        p.drain(s -> { }, 1);
+        p.append("E");
+        p.prepend("Z");
+        assertEquals("[Z, D, E]:3", p.toString());
+    }
+
+    @Test
+    public void recycling_appendBatch_reusesNodes() {
+        Pipe<String> p = new LinkedPipe<>(3, true);
+        p.appendBatch(new String[] {"A", "B", "C"}, 0, 3);
+        p.clear();
+        p.appendBatch(new String[] {"D", "E"}, 0, 2);
+        p.prepend("Z");
+        assertEquals("[Z, D, E]:3", p.toString());
+        assertEquals("E", p.removeLast());
+    }
+
+    @Test
+    public void recycling_clearAppend_ABC() {
+        Pipe<String> p = new LinkedPipe<>(3, true);
+        p.append("X");
+        p.append("Y");
+        p.clear();
+        p.append("A");
+        p.prepend("Z");
+        p.append("B");
+        assertEquals("[Z, A, B]:3", p.toString());
+        assertEquals(new LinkedPipe<String>(3, true), p.newInstance());
+    }
+
+    @Test
+    public void appendBatch_wrappedDE_ABCDE() {
+        Pipe<String> p = initPipe(4, "X", "X", "A");
+        p.removeFirst();
+        p.removeFirst();
+        p.appendBatch(new String[] {"Y", "B", "C", "D", "Y"}, 1, 3);
+        assertEquals("[A, B, C, D]:4", p.toString());
+        assertEquals("D", p.last());
+        assertEquals("D", p.removeLast());
+        assertEquals("A", p.removeFirst());
+    }
+
+    @Test
+    public void appendBatch_emptyRange_unchanged() {
+        pipeABC6.appendBatch(new String[] {"X"}, 1, 0);
+        assertEquals("[A, B, C]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void appendBatch_toEmpty_DE() {
+        pipeEmpty6.appendBatch(new String[] {"D", "E"}, 0, 2);
+        pipeEmpty6.prepend("C");
+        assertEquals("[C, D, E]:6", pipeEmpty6.toString());
+    }
+
+    @Test
+    public void appendBatch_tooMany_unchanged() {
+        try {
+            pipeABC6.appendBatch(new String[] {"D", "E", "F", "G"}, 0, 4);
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertEquals("[A, B, C]:6", pipeABC6.toString());
+        }
+    }
+
+    @Test
+    public void appendBatch_nullElement_unchanged() {
+        try {
+            pipeABC6.appendBatch(new String[] {"D", null}, 0, 2);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("[A, B, C]:6", pipeABC6.toString());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void appendBatch_badRange_exception() {
+        pipeABC6.appendBatch(new String[] {"D", "E"}, 1, 2);
+    }
+
+    @Test
+    public void appendBatchCollection_DE_ABCDE() {
+        pipeABC6.appendBatch(Arrays.asList("D", "E"));
+        assertEquals("[A, B, C, D, E]:6", pipeABC6.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendBatchCollection_null_exception() {
+        pipeABC6.appendBatch((List<String>) null);
+    }
+
+    @Test
+    public void drainTo_ABCMax2_AB() {
+        List<String> list = new ArrayList<>();
+        assertEquals(2, pipeABC6.drainTo(list, 2));
+        assertEquals(Arrays.asList("A", "B"), list);
+        assertEquals("[C]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void drainTo_emptyMax2_none() {
+        List<String> list = new ArrayList<>();
+        assertEquals(0, pipeEmpty6.drainTo(list, 2));
+        assertTrue(list.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void drainTo_null_exception() {
+        pipeABC6.drainTo(null, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void drainTo_negativeMax_exception() {
+        pipeABC6.drainTo(new ArrayList<>(), -1);
+    }
+
+    @Test
+    public void drainFirst_wrappedMax4_BCD() {
+        pipeFull3.removeFirst();
+        pipeFull3.append("D");
+        String[] dest = new String[5];
+        assertEquals(3, pipeFull3.drainFirst(dest, 1, 4));
+        assertArrayEquals(new String[] {null, "B", "C", "D", null}, dest);
+        assertTrue(pipeFull3.isEmpty());
+        pipeFull3.append("E");
+        assertEquals("[E]:3", pipeFull3.toString());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void drainFirst_badRange_exception() {
+        pipeABC6.drainFirst(new String[2], 1, 2);
+    }
+
+    @Test
+    public void drain_ABCMax5_ABC() {
+        StringBuilder result = new StringBuilder();
+        assertEquals(3, pipeABC6.drain(result::append, 5));
+        assertEquals("ABC", result.toString());
+        assertTrue(pipeABC6.isEmpty());
+    }
+
+    @Test
+    public void drain_throwingConsumer_keepsRest() {
+        try {
+            pipeABC6.drain(s -> {
+                if (s.equals("B")) {
+                    throw new RuntimeException();
+                }
+            }, 3);
+            fail();
+        }
+        catch (RuntimeException e) {
+            assertEquals("[C]:6", pipeABC6.toString());
+        }
+    }
+
+    @Test
+    public void stream_ABC_joined() {
+        assertEquals("ABC", pipeABC6.stream().collect(Collectors.joining()));
+        assertEquals(3, pipeABC6.length());
+    }
+
+    @Test
+    public void parallelStream_many_sameAsSequential() {
+        int n = 10000;
+        Pipe<String> p = initPipe(n);
+        for (int i = 0; i < n; i++) {
+            p.append(String.valueOf(i));
+        }
+        List<String> expected = p.stream().collect(Collectors.toList());
+        List<String> actual = p.parallelStream()
+                .collect(Collectors.toList());
+        assertEquals(expected, actual);
+        assertEquals(n, actual.size());
+    }
+
+    @Test
+    public void spliterator_ABC_sized() {
+        Spliterator<String> s = pipeABC6.spliterator();
+        assertEquals(3, s.getExactSizeIfKnown());
+        assertTrue(s.hasCharacteristics(Spliterator.ORDERED));
+        assertTrue(s.hasCharacteristics(Spliterator.NONNULL));
+    }
+
+    @Test
+    public void spliterator_many_splitsBatch() {
+        Pipe<String> p = initPipe(3000);
+        for (int i = 0; i < 3000; i++) {
+            p.append(String.valueOf(i));
+        }
+        Spliterator<String> suffix = p.spliterator();
+        Spliterator<String> prefix = suffix.trySplit();
+        assertEquals(1024, prefix.getExactSizeIfKnown());
+        assertEquals(3000 - 1024, suffix.getExactSizeIfKnown());
+        assertTrue(prefix.tryAdvance(s -> assertEquals("0", s)));
+        assertTrue(suffix.tryAdvance(s -> assertEquals("1024", s)));
+    }
+
+    @Test
+    public void get_ABC_ABC() {
+        RandomAccessPipe<String> p = (RandomAccessPipe<String>) pipeABC6;
+        assertEquals("A", p.get(0));
+        assertEquals("B", p.get(1));
+        assertEquals("C", p.get(2));
+    }
+
+    @Test
+    public void get_wrapped_BCD() {
+        pipeFull3.removeFirst();
+        pipeFull3.append("D");
+        RandomAccessPipe<String> p = (RandomAccessPipe<String>) pipeFull3;
+        assertEquals("B", p.get(0));
+        assertEquals("D", p.get(2));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_ABCIndex3_exception() {
+        ((RandomAccessPipe<String>) pipeABC6).get(3);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_emptyIndex0_exception() {
+        ((RandomAccessPipe<String>) pipeEmpty6).get(0);
+    }
+
+    @Test
+    public void set_ABCIndex1X_AXC() {
+        assertEquals("B", ((RandomAccessPipe<String>) pipeABC6).set(1, "X"));
+        assertEquals("[A, X, C]:6", pipeABC6.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void set_null_exception() {
+        ((RandomAccessPipe<String>) pipeABC6).set(0, null);
+    }
+
+    @Test
+    public void binarySearch_ABC_found() {
+        RandomAccessPipe<String> p = (RandomAccessPipe<String>) pipeABC6;
+        assertEquals(0, p.binarySearch("A", null));
+        assertEquals(2, p.binarySearch("C", null));
+    }
+
+    @Test
+    public void binarySearch_ABC_insertionPoint() {
+        RandomAccessPipe<String> p = (RandomAccessPipe<String>) pipeABC6;
+        assertEquals(-1, p.binarySearch("0", null));
+        assertEquals(-4, p.binarySearch("D", null));
+        assertEquals(-1, p.binarySearch("D", Comparator.reverseOrder()));
+    }
+
+    @Test
+    public void binarySearch_ABCDE_scansUpToKey() {
+        RandomAccessPipe<String> p = new LinkedPipe<>(6);
+        for (String s : new String[] {"A", "B", "C", "D", "E"}) {
+            p.append(s);
+        }
+        int[] comparisons = new int[1];
+        assertEquals(1, p.binarySearch("B", (a, b) -> {
+            comparisons[0]++;
+            return a.compareTo(b);
+        }));
+        assertEquals(2, comparisons[0]);
+    }
+
+    @Test
+    public void binarySearch_manyElements_allFound() {
+        RandomAccessPipe<Integer> p = new LinkedPipe<>(100);
+        for (int i = 0; i < 100; i++) {
+            p.append(i * 2);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, p.get(i) / 2);
+            assertEquals(i, p.binarySearch(i * 2, Integer::compare));
+            assertEquals(-(i + 2), p.binarySearch(i * 2 + 1, Integer::compare));
+        }
+    }
+
     @Test
     public void first_ABC_A() {
         String first = pipeABC6.first();
@@ -0,0 +1,225 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LockedBlockingPipeTest {
+
+    private BlockingPipe<String> pipeABC6;
+    private BlockingPipe<String> pipeEmpty6;
+    private BlockingPipe<String> pipeFull3;
+
+    @Before
+    public void setUp() {
+        pipeABC6 = initPipe(6, "A", "B", "C");
+        pipeEmpty6 = initPipe(6);
+        pipeFull3 = initPipe(3, "A", "B", "C");
+    }
+
+    public BlockingPipe<String> initPipe(int capacity, String... args) {
+        BlockingPipe<String> p = new LockedBlockingPipe<>(capacity);
+        for (String s : args) {
+            p.append(s);
+        }
+        return p;
+    }
+
+    @Test
+    public void constructor_wrapLinked_ABC() {
+        Pipe<String> linkedPipe = new LinkedPipe<>(6);
+        linkedPipe.append("A");
+        linkedPipe.append("B");
+        linkedPipe.append("C");
+        BlockingPipe<String> p = new LockedBlockingPipe<>(linkedPipe);
+        assertEquals(pipeABC6, p);
+        assertEquals("[A, B, C]:6", p.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_null_exception() {
+        new LockedBlockingPipe<String>(null);
+    }
+
+    @Test
+    public void putFirstPutLast_ABC_XABCY() throws InterruptedException {
+        pipeABC6.putFirst("X");
+        pipeABC6.putLast("Y");
+        assertEquals("[X, A, B, C, Y]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void takeFirstTakeLast_ABC_AC() throws InterruptedException {
+        assertEquals("A", pipeABC6.takeFirst());
+        assertEquals("C", pipeABC6.takeLast());
+        assertEquals("[B]:6", pipeABC6.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putLastNull_ABC_exception() throws InterruptedException {
+        pipeABC6.putLast(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void appendX_full_exception() {
+        pipeFull3.append("X");
+    }
+
+    @Test
+    public void offerLastX_full_falseAfterTimeout() throws InterruptedException {
+        assertFalse(pipeFull3.offerLast("X", 10, TimeUnit.MILLISECONDS));
+        assertFalse(pipeFull3.offerFirst("X", 0, TimeUnit.MILLISECONDS));
+        assertEquals("[A, B, C]:3", pipeFull3.toString());
+    }
+
+    @Test
+    public void pollFirst_empty_nullAfterTimeout() throws InterruptedException {
+        assertNull(pipeEmpty6.pollFirst(10, TimeUnit.MILLISECONDS));
+        assertNull(pipeEmpty6.pollLast(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void pollLast_ABC_C() throws InterruptedException {
+        assertEquals("C", pipeABC6.pollLast(1, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 5000)
+    public void takeFirst_empty_waitsForAppend() throws InterruptedException {
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                pipeEmpty6.putLast("X");
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        assertEquals("X", pipeEmpty6.takeFirst());
+        producer.join();
+    }
+
+    @Test(timeout = 5000)
+    public void putLast_full_waitsForRemove() throws InterruptedException {
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                pipeFull3.takeFirst();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+
+        pipeFull3.putLast("D");
+        consumer.join();
+        assertEquals("[B, C, D]:3", pipeFull3.toString());
+    }
+
+    @Test(timeout = 5000, expected = InterruptedException.class)
+    public void takeFirst_interrupted_exception() throws InterruptedException {
+        Thread.currentThread().interrupt();
+        pipeEmpty6.takeFirst();
+    }
+
+    @Test(timeout = 10000)
+    public void putTake_twoThreads_inOrder() throws InterruptedException {
+        final int n = 10000;
+        final BlockingPipe<Integer> p = new LockedBlockingPipe<>(4);
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < n; i++) {
+                    p.putLast(i);
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, p.takeFirst().intValue());
+        }
+        producer.join();
+        assertTrue(p.isEmpty());
+    }
+
+    @Test
+    public void appendAll_DEToABC_ABCDE() {
+        pipeABC6.appendAll(initPipe(2, "D", "E"));
+        assertEquals("[A, B, C, D, E]:6", pipeABC6.toString());
+    }
+
+    @Test(timeout = 5000)
+    public void appendAll_self_unchanged() {
+        pipeABC6.appendAll(pipeABC6);
+        assertEquals("[A, B, C]:6", pipeABC6.toString());
+    }
+
+    @Test(timeout = 20000)
+    public void appendAll_eachOtherConcurrently_noDeadlock()
+            throws InterruptedException {
+        BlockingPipe<Integer> a = new LockedBlockingPipe<>(4);
+        BlockingPipe<Integer> b = new LockedBlockingPipe<>(4);
+        a.append(1);
+        b.append(2);
+        Thread other = new Thread(() -> {
+            for (int i = 0; i < 100000; i++) {
+                try {
+                    b.appendAll(a);
+                }
+                catch (IllegalStateException e) {
+                    // a did not fit; try again
+                }
+            }
+        });
+        other.start();
+        for (int i = 0; i < 100000; i++) {
+            try {
+                a.appendAll(b);
+            }
+            catch (IllegalStateException e) {
+                // b did not fit; try again
+            }
+        }
+        other.join();
+        assertEquals(2, a.length() + b.length());
+    }
+
+    @Test
+    public void copy_ABC() {
+        Pipe<String> copy = pipeABC6.copy();
+        assertEquals(pipeABC6, copy);
+        assertTrue(copy instanceof LockedBlockingPipe);
+    }
+
+    @Test(timeout = 5000)
+    public void drainTo_full_wakesPutLast() throws InterruptedException {
+        Thread producer = new Thread(() -> {
+            try {
+                pipeFull3.putLast("D");
+                pipeFull3.putLast("E");
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        Thread.sleep(50);
+
+        List<String> list = new ArrayList<>();
+        assertEquals(3, pipeFull3.drainTo(list, 3));
+        producer.join();
+        assertEquals(Arrays.asList("A", "B", "C"), list);
+        assertEquals("[D, E]:3", pipeFull3.toString());
+    }
+}
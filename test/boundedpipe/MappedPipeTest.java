@@ -0,0 +1,119 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class MappedPipeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = folder.getRoot().toPath().resolve("pipe.dat");
+    }
+
+    public MappedPipe<String> openPipe(int capacity) throws IOException {
+        return new MappedPipe<>(file, capacity, OffHeapPipeTest.CODEC,
+                MappedPipe.SyncPolicy.NONE);
+    }
+
+    @Test
+    public void open_newFile_empty() throws IOException {
+        MappedPipe<String> p = openPipe(6);
+        assertTrue(p.isEmpty());
+        assertEquals("[]:6", p.toString());
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    public void reopen_ABC_ABC() throws IOException {
+        MappedPipe<String> p = openPipe(6);
+        p.append("A");
+        p.append("BB");
+        p.append("CCC");
+        p.force();
+
+        MappedPipe<String> reopened = openPipe(6);
+        assertEquals("[A, BB, CCC]:6", reopened.toString());
+    }
+
+    @Test
+    public void reopen_wrapped_inOrder() throws IOException {
+        MappedPipe<String> p = openPipe(3);
+        p.append("A");
+        p.append("BB");
+        p.append("CCC");
+        p.removeFirst();
+        p.removeFirst();
+        p.append("DDDD");
+        p.prepend("Z");
+
+        MappedPipe<String> reopened = openPipe(3);
+        assertEquals("[Z, CCC, DDDD]:3", reopened.toString());
+        assertEquals("Z", reopened.removeFirst());
+        assertEquals("DDDD", reopened.removeLast());
+    }
+
+    @Test
+    public void reopen_cleared_empty() throws IOException {
+        MappedPipe<String> p = openPipe(6);
+        p.append("A");
+        p.clear();
+
+        assertTrue(openPipe(6).isEmpty());
+    }
+
+    @Test
+    public void everyChange_ABC_ABC() throws IOException {
+        MappedPipe<String> p = new MappedPipe<>(file, 6, OffHeapPipeTest.CODEC,
+                MappedPipe.SyncPolicy.EVERY_CHANGE);
+        p.append("A");
+        p.append("BB");
+        assertEquals(MappedPipe.SyncPolicy.EVERY_CHANGE, p.syncPolicy());
+        assertEquals("[A, BB]:6", openPipe(6).toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void reopen_otherCapacity_exception() throws IOException {
+        openPipe(6);
+        openPipe(5);
+    }
+
+    @Test(expected = IOException.class)
+    public void open_notAPipe_exception() throws IOException {
+        Files.write(file, new byte[32 + 6 * 8]);
+        openPipe(6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void open_nullPolicy_exception() throws IOException {
+        new MappedPipe<>(file, 6, OffHeapPipeTest.CODEC, null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void appendX_full_exception() throws IOException {
+        MappedPipe<String> p = openPipe(1);
+        p.append("A");
+        p.append("X");
+    }
+
+    @Test
+    public void copy_ABC_notMapped() throws IOException {
+        MappedPipe<String> p = openPipe(6);
+        p.append("A");
+        Pipe<String> copy = p.copy();
+        assertEquals(p, copy);
+        assertFalse(copy instanceof MappedPipe);
+    }
+}
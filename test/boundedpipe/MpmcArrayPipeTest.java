@@ -0,0 +1,221 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class MpmcArrayPipeTest {
+
+    private MpmcArrayPipe<String> pipeABC6;
+    private MpmcArrayPipe<String> pipeEmpty6;
+    private MpmcArrayPipe<String> pipeFull3;
+
+    @Before
+    public void setUp() {
+        pipeABC6 = initPipe(6, "A", "B", "C");
+        pipeEmpty6 = initPipe(6);
+        pipeFull3 = initPipe(3, "A", "B", "C");
+    }
+
+    public MpmcArrayPipe<String> initPipe(int capacity, String... args) {
+        MpmcArrayPipe<String> p = new MpmcArrayPipe<>(capacity);
+        for (String s : args) {
+            p.append(s);
+        }
+        return p;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_capacity1_exception() {
+        new MpmcArrayPipe<String>(1);
+    }
+
+    @Test
+    public void length_ABC_3() {
+        assertEquals(3, pipeABC6.length());
+    }
+
+    @Test
+    public void firstLast_ABC_AC() {
+        assertEquals("A", pipeABC6.first());
+        assertEquals("C", pipeABC6.last());
+    }
+
+    @Test
+    public void firstLast_empty_null() {
+        assertNull(pipeEmpty6.first());
+        assertNull(pipeEmpty6.last());
+    }
+
+    @Test
+    public void offerX_full_false() {
+        assertFalse(pipeFull3.offer("X"));
+        assertTrue(pipeFull3.isFull());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void appendX_full_exception() {
+        pipeFull3.append("X");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void offerNull_ABC_exception() {
+        pipeABC6.offer(null);
+    }
+
+    @Test
+    public void poll_empty_null() {
+        assertNull(pipeEmpty6.poll());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removeFirst_empty_exception() {
+        pipeEmpty6.removeFirst();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void prependX_ABC_exception() {
+        pipeABC6.prepend("X");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void removeLast_ABC_exception() {
+        pipeABC6.removeLast();
+    }
+
+    @Test
+    public void removeFirstAppend_wrapped_inOrder() {
+        for (int i = 0; i < 10; i++) {
+            String s = pipeFull3.removeFirst();
+            pipeFull3.append(s);
+        }
+        assertEquals("[B, C, A]:3", pipeFull3.toString());
+    }
+
+    @Test
+    public void offerPoll_capacity3ManyRounds_limitKept() {
+        for (int i = 0; i < 20; i++) {
+            assertFalse(pipeFull3.offer("X"));
+            assertEquals(3, pipeFull3.length());
+            assertEquals("A", pipeFull3.poll());
+            assertTrue(pipeFull3.offer("A"));
+            assertEquals("B", pipeFull3.poll());
+            assertEquals("C", pipeFull3.poll());
+            assertTrue(pipeFull3.offer("B"));
+            assertTrue(pipeFull3.offer("C"));
+            assertEquals("[A, B, C]:3", pipeFull3.toString());
+        }
+    }
+
+    @Test
+    public void appendAll_filledByOtherProducer_notAddedElementKept() {
+        MpmcArrayPipe<String> target = initPipe(3, "A");
+        Pipe<String> source = new CircArrayPipe<String>(2) {
+            private boolean raced;
+
+            @Override
+            public String first() {
+                if (!raced) {
+                    raced = true;
+                    target.append("X");
+                }
+                return super.first();
+            }
+        };
+        source.append("B");
+        source.append("C");
+
+        try {
+            target.appendAll(source);
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertEquals("[A, X, B]:3", target.toString());
+            assertEquals("[C]:2", source.toString());
+        }
+    }
+
+    @Test
+    public void clear_ABC_empty() {
+        pipeABC6.clear();
+        assertTrue(pipeABC6.isEmpty());
+        assertEquals("[]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void equals_ABC6ArrayToABC6Mpmc_true() {
+        Pipe<String> circArrayPipe = new CircArrayPipe<>(6);
+        circArrayPipe.append("A");
+        circArrayPipe.append("B");
+        circArrayPipe.append("C");
+        assertTrue(pipeABC6.equals(circArrayPipe));
+    }
+
+    @Test(timeout = 20000)
+    public void offerPoll_fourByFour_allDelivered() throws InterruptedException {
+        final int producers = 4;
+        final int consumers = 4;
+        final int perProducer = 20000;
+        final MpmcArrayPipe<Integer> p = new MpmcArrayPipe<>(16);
+        final AtomicLong sum = new AtomicLong();
+        final AtomicLong count = new AtomicLong();
+        final long total = (long) producers * perProducer;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            threads.add(new Thread(() -> {
+                for (int j = 1; j <= perProducer; j++) {
+                    while (!p.offer(j)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (int i = 0; i < consumers; i++) {
+            threads.add(new Thread(() -> {
+                while (count.get() < total) {
+                    Integer e = p.poll();
+                    if (e == null) {
+                        Thread.yield();
+                    }
+                    else {
+                        sum.addAndGet(e);
+                        count.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        long expected = (long) producers * perProducer * (perProducer + 1) / 2;
+        assertEquals(total, count.get());
+        assertEquals(expected, sum.get());
+        assertTrue(p.isEmpty());
+    }
+
+    @Test
+    public void drain_ABCMax2_AB() {
+        StringBuilder result = new StringBuilder();
+        assertEquals(2, pipeABC6.drain(result::append, 2));
+        assertEquals("AB", result.toString());
+        assertEquals("[C]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void drainFirst_ABCMax5_ABC() {
+        String[] dest = new String[5];
+        assertEquals(3, pipeABC6.drainFirst(dest, 0, 5));
+        assertArrayEquals(new String[] {"A", "B", "C", null, null}, dest);
+        assertTrue(pipeABC6.isEmpty());
+    }
+}
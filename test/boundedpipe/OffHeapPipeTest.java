@@ -0,0 +1,163 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class OffHeapPipeTest {
+
+    static final RecordCodec<String> CODEC = new RecordCodec<String>() {
+        @Override
+        public int recordSize() {
+            return 8;
+        }
+
+        @Override
+        public void write(String element, ByteBuffer buffer, int offset) {
+            buffer.putInt(offset, element.length());
+            buffer.putInt(offset + 4, element.charAt(0));
+        }
+
+        @Override
+        public String read(ByteBuffer buffer, int offset) {
+            char c = (char) buffer.getInt(offset + 4);
+            return String.valueOf(c).repeat(buffer.getInt(offset));
+        }
+    };
+
+    private OffHeapPipe<String> pipeABC6;
+    private OffHeapPipe<String> pipeEmpty6;
+    private OffHeapPipe<String> pipeFull3;
+
+    @Before
+    public void setUp() {
+        pipeABC6 = initPipe(6, "A", "BB", "CCC");
+        pipeEmpty6 = initPipe(6);
+        pipeFull3 = initPipe(3, "A", "BB", "CCC");
+    }
+
+    public OffHeapPipe<String> initPipe(int capacity, String... args) {
+        OffHeapPipe<String> p = new OffHeapPipe<>(capacity, CODEC);
+        for (String s : args) {
+            p.append(s);
+        }
+        return p;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_nullCodec_exception() {
+        new OffHeapPipe<String>(6, null);
+    }
+
+    @Test
+    public void toString_ABC6() {
+        assertEquals("[A, BB, CCC]:6", pipeABC6.toString());
+        assertEquals(3, pipeABC6.length());
+    }
+
+    @Test
+    public void firstLast_ABC_ACCC() {
+        assertEquals("A", pipeABC6.first());
+        assertEquals("CCC", pipeABC6.last());
+    }
+
+    @Test
+    public void firstLast_empty_null() {
+        assertNull(pipeEmpty6.first());
+        assertNull(pipeEmpty6.last());
+    }
+
+    @Test
+    public void prependX_ABC_XABC() {
+        pipeABC6.prepend("X");
+        assertEquals("[X, A, BB, CCC]:6", pipeABC6.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void appendX_full_exception() {
+        pipeFull3.append("X");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendNull_ABC_exception() {
+        pipeABC6.append(null);
+    }
+
+    @Test
+    public void removeFirstRemoveLast_ABC_BB() {
+        assertEquals("A", pipeABC6.removeFirst());
+        assertEquals("CCC", pipeABC6.removeLast());
+        assertEquals("[BB]:6", pipeABC6.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removeFirst_empty_exception() {
+        pipeEmpty6.removeFirst();
+    }
+
+    @Test
+    public void removeFirstAppend_wrapped_inOrder() {
+        pipeFull3.removeFirst();
+        pipeFull3.removeFirst();
+        pipeFull3.append("DDDD");
+        pipeFull3.prepend("Z");
+        assertEquals("[Z, CCC, DDDD]:3", pipeFull3.toString());
+    }
+
+    @Test
+    public void getInt_ABC_lengths() {
+        assertEquals(1, pipeABC6.getInt(0, 0));
+        assertEquals(2, pipeABC6.getInt(1, 0));
+        assertEquals('C', pipeABC6.getInt(2, 4));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getInt_pastLength_exception() {
+        pipeABC6.getInt(3, 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getLong_pastRecord_exception() {
+        pipeABC6.getLong(0, 4);
+    }
+
+    @Test
+    public void record_BB_view() {
+        ByteBuffer view = pipeABC6.record(1);
+        assertEquals(8, view.remaining());
+        assertTrue(view.isReadOnly());
+        assertEquals(2, view.getInt(0));
+    }
+
+    @Test
+    public void discardFirst_ABC_BBCCC() {
+        pipeABC6.discardFirst();
+        assertEquals("[BB, CCC]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void equals_ABC6ArrayToABC6OffHeap_true() {
+        Pipe<String> circArrayPipe = new CircArrayPipe<>(6);
+        circArrayPipe.append("A");
+        circArrayPipe.append("BB");
+        circArrayPipe.append("CCC");
+        assertTrue(pipeABC6.equals(circArrayPipe));
+        assertEquals(circArrayPipe.hashCode(), pipeABC6.hashCode());
+    }
+
+    @Test
+    public void copy_ABC() {
+        Pipe<String> copy = pipeABC6.copy();
+        assertEquals(pipeABC6, copy);
+        assertTrue(copy instanceof OffHeapPipe);
+    }
+
+    @Test
+    public void clear_ABC_empty() {
+        pipeABC6.clear();
+        assertEquals("[]:6", pipeABC6.toString());
+    }
+}
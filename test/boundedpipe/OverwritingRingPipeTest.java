@@ -0,0 +1,135 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OverwritingRingPipeTest {
+
+    private OverwritingRingPipe<String> pipeABC6;
+    private OverwritingRingPipe<String> pipeFull3;
+    private List<String> evicted;
+
+    @Before
+    public void setUp() {
+        evicted = new ArrayList<>();
+        pipeABC6 = initPipe(6, "A", "B", "C");
+        pipeFull3 = initPipe(3, "A", "B", "C");
+    }
+
+    public OverwritingRingPipe<String> initPipe(int capacity, String... args) {
+        OverwritingRingPipe<String> p =
+                new OverwritingRingPipe<>(capacity, evicted::add);
+        for (String s : args) {
+            p.append(s);
+        }
+        return p;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_capacity0_exception() {
+        new OverwritingRingPipe<String>(0);
+    }
+
+    @Test
+    public void appendX_ABC_ABCXNoEviction() {
+        assertNull(pipeABC6.appendEvicting("X"));
+        assertEquals("[A, B, C, X]:6", pipeABC6.toString());
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    public void appendEvictingX_full_A() {
+        assertEquals("A", pipeFull3.appendEvicting("X"));
+        assertEquals("[B, C, X]:3", pipeFull3.toString());
+        assertEquals(Arrays.asList("A"), evicted);
+    }
+
+    @Test
+    public void prependEvictingX_full_C() {
+        assertEquals("C", pipeFull3.prependEvicting("X"));
+        assertEquals("[X, A, B]:3", pipeFull3.toString());
+        assertEquals(Arrays.asList("C"), evicted);
+    }
+
+    @Test
+    public void appendX_full_noException() {
+        pipeFull3.append("X");
+        pipeFull3.append("Y");
+        assertEquals("[C, X, Y]:3", pipeFull3.toString());
+        assertEquals(Arrays.asList("A", "B"), evicted);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendNull_full_exception() {
+        pipeFull3.append(null);
+    }
+
+    @Test
+    public void appendNull_full_unchanged() {
+        try {
+            pipeFull3.appendEvicting(null);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("[A, B, C]:3", pipeFull3.toString());
+            assertTrue(evicted.isEmpty());
+        }
+    }
+
+    @Test
+    public void append_manyWrapped_lastThree() {
+        OverwritingRingPipe<Integer> p = new OverwritingRingPipe<>(3);
+        for (int i = 0; i < 100; i++) {
+            p.append(i);
+        }
+        assertEquals("[97, 98, 99]:3", p.toString());
+    }
+
+    @Test
+    public void appendAll_DEToFull_CDE() {
+        pipeFull3.appendAll(initPipe(2, "D", "E"));
+        assertEquals("[C, D, E]:3", pipeFull3.toString());
+        assertEquals(Arrays.asList("A", "B"), evicted);
+    }
+
+    @Test
+    public void appendBatch_DEFGToFull_EFG() {
+        pipeFull3.appendBatch(new String[] {"D", "E", "F", "G"}, 0, 4);
+        assertEquals("[E, F, G]:3", pipeFull3.toString());
+        assertEquals(Arrays.asList("A", "B", "C", "D"), evicted);
+    }
+
+    @Test
+    public void appendBatch_nullElement_unchanged() {
+        try {
+            pipeFull3.appendBatch(new String[] {"D", null}, 0, 2);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("[A, B, C]:3", pipeFull3.toString());
+        }
+    }
+
+    @Test
+    public void copy_full_overwriting() {
+        Pipe<String> copy = pipeFull3.copy();
+        assertEquals(pipeFull3, copy);
+        copy.append("X");
+        assertEquals("[B, C, X]:3", copy.toString());
+    }
+
+    @Test
+    public void equals_ABC6ArrayToABC6Overwriting_true() {
+        Pipe<String> circArrayPipe = new CircArrayPipe<>(6);
+        circArrayPipe.append("A");
+        circArrayPipe.append("B");
+        circArrayPipe.append("C");
+        assertTrue(pipeABC6.equals(circArrayPipe));
+    }
+}
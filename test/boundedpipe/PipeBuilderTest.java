@@ -0,0 +1,140 @@
+package boundedpipe;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class PipeBuilderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_capacity0_exception() {
+        new PipeBuilder<String>(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void expectedOccupancy_0_exception() {
+        new PipeBuilder<String>(6).expectedOccupancy(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void threadModel_null_exception() {
+        new PipeBuilder<String>(6).threadModel(null);
+    }
+
+    @Test
+    public void build_default_circArray() {
+        Pipe<String> p = new PipeBuilder<String>(6).build();
+        assertTrue(p instanceof CircArrayPipe);
+        assertEquals(6, p.capacity());
+        assertTrue(p.isEmpty());
+    }
+
+    @Test
+    public void build_smallLowOccupancy_circArray() {
+        Pipe<String> p = new PipeBuilder<String>(1024)
+                .expectedOccupancy(0.01).build();
+        assertTrue(p instanceof CircArrayPipe);
+    }
+
+    @Test
+    public void build_largeLowOccupancy_segmented() {
+        Pipe<String> p = new PipeBuilder<String>(1 << 20)
+                .expectedOccupancy(0.01).build();
+        assertTrue(p instanceof SegmentedPipe);
+        assertEquals(1 << 20, p.capacity());
+    }
+
+    @Test
+    public void build_largeHighOccupancy_circArray() {
+        Pipe<String> p = new PipeBuilder<String>(1 << 20)
+                .expectedOccupancy(0.9).build();
+        assertTrue(p instanceof CircArrayPipe);
+    }
+
+    @Test
+    public void build_spsc_spscArray() {
+        Pipe<String> p = new PipeBuilder<String>(6)
+                .threadModel(PipeBuilder.ThreadModel.SPSC).build();
+        assertTrue(p instanceof SpscArrayPipe);
+    }
+
+    @Test
+    public void build_mpmc_mpmcArray() {
+        Pipe<String> p = new PipeBuilder<String>(6)
+                .threadModel(PipeBuilder.ThreadModel.MPMC).build();
+        assertTrue(p instanceof MpmcArrayPipe);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void build_mpmcCapacity1_exception() {
+        new PipeBuilder<String>(1)
+                .threadModel(PipeBuilder.ThreadModel.MPMC).build();
+    }
+
+    @Test
+    public void build_blocking_lockedBlocking() {
+        Pipe<String> p = new PipeBuilder<String>(6)
+                .threadModel(PipeBuilder.ThreadModel.BLOCKING).build();
+        assertTrue(p instanceof LockedBlockingPipe);
+    }
+
+    @Test
+    public void build_offHeap_offHeap() {
+        Pipe<String> p = new PipeBuilder<String>(6)
+                .offHeap(OffHeapPipeTest.CODEC).build();
+        assertTrue(p instanceof OffHeapPipe);
+        p.append("A");
+        assertEquals("[A]:6", p.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void build_offHeapSpsc_exception() {
+        new PipeBuilder<String>(6).offHeap(OffHeapPipeTest.CODEC)
+                .threadModel(PipeBuilder.ThreadModel.SPSC).build();
+    }
+
+    @Test
+    public void build_persistent_reopened() throws IOException {
+        Path file = folder.newFolder().toPath().resolve("pipe");
+        Pipe<String> p = new PipeBuilder<String>(6)
+                .persistent(file, OffHeapPipeTest.CODEC,
+                        MappedPipe.SyncPolicy.NONE).build();
+        assertTrue(p instanceof MappedPipe);
+        p.append("A");
+        ((MappedPipe<String>) p).force();
+
+        Pipe<String> reopened = new PipeBuilder<String>(6)
+                .persistent(file, OffHeapPipeTest.CODEC,
+                        MappedPipe.SyncPolicy.NONE).build();
+        assertEquals("[A]:6", reopened.toString());
+    }
+
+    @Test
+    public void build_adaptive_adaptive() {
+        Pipe<String> p = new PipeBuilder<String>(6).adaptive(true).build();
+        assertTrue(p instanceof AdaptivePipe);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void build_adaptiveBlocking_exception() {
+        new PipeBuilder<String>(6).adaptive(true)
+                .threadModel(PipeBuilder.ThreadModel.BLOCKING).build();
+    }
+
+    @Test
+    public void buildIntPipe_capacity6_empty() {
+        IntPipe p = new PipeBuilder<Integer>(6).buildIntPipe();
+        assertEquals(6, p.capacity());
+        assertTrue(p.isEmpty());
+        assertEquals(6, new PipeBuilder<Long>(6).buildLongPipe().capacity());
+        assertEquals(6, new PipeBuilder<Double>(6).buildDoublePipe().capacity());
+    }
+}
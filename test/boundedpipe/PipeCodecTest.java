@@ -0,0 +1,163 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PipeCodecTest {
+
+    private PipeCodec<String> codec;
+    private Pipe<String> pipeABC6;
+
+    @Before
+    public void setUp() {
+        codec = new PipeCodec<>(ElementSerializer.utf8());
+        pipeABC6 = new CircArrayPipe<>(6);
+        pipeABC6.append("A");
+        pipeABC6.append("B");
+        pipeABC6.append("C");
+    }
+
+    private byte[] write(PipeCodec<String> c, Pipe<String> p)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        c.write(p, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private Pipe<String> read(PipeCodec<String> c, byte[] bytes)
+            throws IOException {
+        return c.read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_null_exception() {
+        new PipeCodec<String>(null);
+    }
+
+    @Test
+    public void writeRead_ABC_ABC() throws IOException {
+        byte[] bytes = write(codec, pipeABC6);
+        assertEquals(12 + 3 * 5, bytes.length);
+        assertEquals(pipeABC6, read(codec, bytes));
+        assertEquals("[A, B, C]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void writeRead_twoPipesOnOneChannel_both() throws IOException {
+        Pipe<String> pipeXY4 = new CircArrayPipe<>(4);
+        pipeXY4.append("X");
+        pipeXY4.append("Y");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel sink = Channels.newChannel(out);
+        codec.write(pipeABC6, sink);
+        codec.write(pipeXY4, sink);
+        out.write(42);
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        ReadableByteChannel source = Channels.newChannel(in);
+        assertEquals(pipeABC6, codec.read(source));
+        assertEquals(pipeXY4, codec.read(source));
+        assertEquals(42, in.read());
+    }
+
+    @Test
+    public void writeRead_empty_empty() throws IOException {
+        Pipe<String> empty = new LinkedPipe<>(4);
+        assertEquals(empty, read(codec, write(codec, empty)));
+    }
+
+    @Test
+    public void read_linkedFactory_linked() throws IOException {
+        byte[] bytes = write(codec, pipeABC6);
+        Pipe<String> p = codec.read(
+                Channels.newChannel(new ByteArrayInputStream(bytes)),
+                LinkedPipe::new);
+        assertTrue(p instanceof LinkedPipe);
+        assertEquals(pipeABC6, p);
+    }
+
+    @Test
+    public void writeRead_smallBuffer_acrossBuffers() throws IOException {
+        PipeCodec<String> small = new PipeCodec<>(ElementSerializer.utf8(), 16);
+        Pipe<String> p = new CircArrayPipe<>(100);
+        for (int i = 0; i < 100; i++) {
+            p.append("element-" + i + "-\u00e9\u4e2d\ud83d\ude00");
+        }
+        assertEquals(p, read(small, write(small, p)));
+    }
+
+    @Test
+    public void writeRead_elementLargerThanBuffer_ABC() throws IOException {
+        PipeCodec<String> small = new PipeCodec<>(ElementSerializer.utf8(), 16);
+        char[] chars = new char[100];
+        Arrays.fill(chars, 'x');
+        pipeABC6.append(new String(chars));
+        pipeABC6.append("D");
+        assertEquals(pipeABC6, read(small, write(small, pipeABC6)));
+    }
+
+    @Test
+    public void writeRead_recordCodec_ABC() throws IOException {
+        PipeCodec<String> records =
+                new PipeCodec<>(ElementSerializer.of(OffHeapPipeTest.CODEC));
+        Pipe<String> p = new CircArrayPipe<>(6);
+        p.append("A");
+        p.append("BB");
+        p.append("CCC");
+        byte[] bytes = write(records, p);
+        assertEquals(12 + 3 * 12, bytes.length);
+        assertEquals(p, read(records, bytes));
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void read_badMagic_exception() throws IOException {
+        byte[] bytes = write(codec, pipeABC6);
+        bytes[0] = 0;
+        read(codec, bytes);
+    }
+
+    @Test(expected = EOFException.class)
+    public void read_truncated_exception() throws IOException {
+        byte[] bytes = write(codec, pipeABC6);
+        read(codec, Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void write_wrongSize_exception() throws IOException {
+        PipeCodec<String> wrong = new PipeCodec<>(new ElementSerializer<String>() {
+            @Override
+            public int size(String element) {
+                return 2;
+            }
+
+            @Override
+            public void write(String element, ByteBuffer buffer) {
+                buffer.put((byte) element.charAt(0));
+            }
+
+            @Override
+            public String read(ByteBuffer buffer) {
+                return "";
+            }
+        });
+        write(wrong, pipeABC6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void write_nullChannel_exception() throws IOException {
+        codec.write(pipeABC6, null);
+    }
+}
@@ -0,0 +1,242 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class PipePublisherTest {
+
+    private PipePublisher<String> publisher4;
+    private RecordingSubscriber subscriber;
+
+    @Before
+    public void setUp() {
+        publisher4 = new PipePublisher<>(4);
+        subscriber = new RecordingSubscriber();
+    }
+
+    /**
+     * Subscriber recording every signal, requesting only when told to.
+     */
+    static class RecordingSubscriber implements Flow.Subscriber<String> {
+        final List<String> items = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(String item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_nonEmptyPipe_exception() {
+        Pipe<String> pipe = new CircArrayPipe<>(4);
+        pipe.append("A");
+        new PipePublisher<>(pipe, 8);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void subscribe_null_exception() {
+        publisher4.subscribe(null);
+    }
+
+    @Test
+    public void offer_noDemand_throttledByCapacity() {
+        publisher4.subscribe(subscriber);
+        for (String s : new String[] {"A", "B", "C", "D"}) {
+            assertTrue(publisher4.offer(s));
+        }
+        assertFalse(publisher4.offer("E"));
+        assertEquals(0, publisher4.remainingCapacity());
+        assertTrue(subscriber.items.isEmpty());
+    }
+
+    @Test
+    public void request_ABCD_emitsDemandOnly() {
+        publisher4.subscribe(subscriber);
+        publisher4.offer("A");
+        publisher4.offer("B");
+        publisher4.offer("C");
+        subscriber.subscription.request(2);
+        assertEquals(Arrays.asList("A", "B"), subscriber.items);
+        assertEquals(3, publisher4.remainingCapacity());
+
+        publisher4.offer("D");
+        subscriber.subscription.request(5);
+        assertEquals(Arrays.asList("A", "B", "C", "D"), subscriber.items);
+        publisher4.offer("E");
+        assertEquals(Arrays.asList("A", "B", "C", "D", "E"), subscriber.items);
+    }
+
+    @Test
+    public void request_beforeSubscribeReturns_emitsAfter() {
+        publisher4.offer("A");
+        publisher4.subscribe(new RecordingSubscriber() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                super.onSubscribe(subscription);
+                subscription.request(Long.MAX_VALUE);
+                assertTrue(items.isEmpty());
+            }
+        });
+        assertEquals(4, publisher4.remainingCapacity());
+    }
+
+    @Test
+    public void close_ABbuffered_completesAfterEmission() {
+        publisher4.subscribe(subscriber);
+        publisher4.offer("A");
+        publisher4.offer("B");
+        publisher4.close();
+        assertFalse(subscriber.completed);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(Arrays.asList("A", "B"), subscriber.items);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void offer_closedWhileAppending_emittedBeforeComplete() {
+        AtomicReference<PipePublisher<String>> publisher =
+                new AtomicReference<>();
+        Pipe<String> pipe = new SpscArrayPipe<String>(4) {
+            @Override
+            public void append(String element) {
+                publisher.get().close();
+                super.append(element);
+            }
+        };
+        publisher.set(new PipePublisher<>(pipe, 8));
+        publisher.get().subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertTrue(publisher.get().offer("A"));
+        assertEquals(Arrays.asList("A"), subscriber.items);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void offer_onNextThrows_cancelled() {
+        RecordingSubscriber failing = new RecordingSubscriber() {
+            @Override
+            public void onNext(String item) {
+                super.onNext(item);
+                throw new IllegalStateException();
+            }
+        };
+        publisher4.subscribe(failing);
+        failing.subscription.request(Long.MAX_VALUE);
+
+        try {
+            publisher4.offer("A");
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertEquals(Arrays.asList("A"), failing.items);
+        }
+        assertTrue(publisher4.offer("B"));
+        publisher4.close();
+        assertEquals(Arrays.asList("A"), failing.items);
+        assertFalse(failing.completed);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void offer_closed_exception() {
+        publisher4.close();
+        publisher4.offer("A");
+    }
+
+    @Test
+    public void closeExceptionally_empty_error() {
+        publisher4.subscribe(subscriber);
+        RuntimeException failure = new RuntimeException();
+        publisher4.closeExceptionally(failure);
+        assertSame(failure, subscriber.error);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void request0_ABC_error() {
+        publisher4.subscribe(subscriber);
+        publisher4.offer("A");
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.items.isEmpty());
+    }
+
+    @Test
+    public void cancel_ABC_noMoreItems() {
+        publisher4.subscribe(subscriber);
+        publisher4.offer("A");
+        subscriber.subscription.request(1);
+        subscriber.subscription.cancel();
+        publisher4.offer("B");
+        subscriber.subscription.request(1);
+        assertEquals(Arrays.asList("A"), subscriber.items);
+    }
+
+    @Test
+    public void subscribe_second_error() {
+        publisher4.subscribe(subscriber);
+        RecordingSubscriber second = new RecordingSubscriber();
+        publisher4.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException);
+        assertNull(subscriber.error);
+    }
+
+    @Test(timeout = 20000)
+    public void publishSubscribe_twoThreads_inOrder() throws InterruptedException {
+        final int n = 100000;
+        PipePublisher<Integer> publisher = new PipePublisher<>(16);
+        PipeSubscriber<Integer> sink = new PipeSubscriber<>(8);
+        publisher.subscribe(sink);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < n; i++) {
+                while (!publisher.offer(i)) {
+                    Thread.yield();
+                }
+            }
+            publisher.close();
+        });
+        producer.start();
+
+        int expected = 0;
+        while (!sink.isDone()) {
+            Integer e = sink.poll();
+            if (e == null) {
+                Thread.yield();
+            }
+            else {
+                assertEquals(expected++, e.intValue());
+            }
+        }
+        producer.join();
+        assertEquals(n, expected);
+        assertNull(sink.error());
+    }
+}
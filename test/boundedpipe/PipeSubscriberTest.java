@@ -0,0 +1,130 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.Assert.*;
+
+public class PipeSubscriberTest {
+
+    private PipeSubscriber<String> subscriber4;
+    private RecordingSubscription subscription;
+
+    @Before
+    public void setUp() {
+        subscriber4 = new PipeSubscriber<>(4, 2);
+        subscription = new RecordingSubscription();
+        subscriber4.onSubscribe(subscription);
+    }
+
+    /**
+     * Subscription recording the requests.
+     */
+    static class RecordingSubscription implements Flow.Subscription {
+        final List<Long> requests = new ArrayList<>();
+        boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requests.add(n);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_batchAboveCapacity_exception() {
+        new PipeSubscriber<String>(4, 5);
+    }
+
+    @Test
+    public void onSubscribe_capacity4_requests4() {
+        assertEquals(Arrays.asList(4L), subscription.requests);
+    }
+
+    @Test
+    public void onSubscribe_second_cancelled() {
+        RecordingSubscription second = new RecordingSubscription();
+        subscriber4.onSubscribe(second);
+        assertTrue(second.cancelled);
+        assertTrue(second.requests.isEmpty());
+    }
+
+    @Test
+    public void poll_ABC_requestsInBatches() {
+        subscriber4.onNext("A");
+        subscriber4.onNext("B");
+        subscriber4.onNext("C");
+        assertEquals("A", subscriber4.poll());
+        assertEquals(Arrays.asList(4L), subscription.requests);
+        assertEquals("B", subscriber4.poll());
+        assertEquals(Arrays.asList(4L, 2L), subscription.requests);
+        assertEquals(1, subscriber4.length());
+    }
+
+    @Test
+    public void poll_empty_null() {
+        assertNull(subscriber4.poll());
+    }
+
+    @Test
+    public void drain_ABCD_requests4() {
+        for (String s : new String[] {"A", "B", "C", "D"}) {
+            subscriber4.onNext(s);
+        }
+        StringBuilder sb = new StringBuilder();
+        assertEquals(4, subscriber4.drain(sb::append, 10));
+        assertEquals("ABCD", sb.toString());
+        assertEquals(Arrays.asList(4L, 4L), subscription.requests);
+    }
+
+    @Test
+    public void onNext_overflow_cancelledAndFailed() {
+        for (String s : new String[] {"A", "B", "C", "D", "E"}) {
+            subscriber4.onNext(s);
+        }
+        assertTrue(subscription.cancelled);
+        assertTrue(subscriber4.error() instanceof IllegalStateException);
+        assertEquals(4, subscriber4.length());
+    }
+
+    @Test
+    public void onComplete_AB_doneAfterTaken() {
+        subscriber4.onNext("A");
+        subscriber4.onComplete();
+        assertFalse(subscriber4.isDone());
+        assertEquals("A", subscriber4.poll());
+        assertTrue(subscriber4.isDone());
+        assertNull(subscriber4.error());
+    }
+
+    @Test
+    public void onError_empty_doneWithError() {
+        RuntimeException failure = new RuntimeException();
+        subscriber4.onError(failure);
+        assertTrue(subscriber4.isDone());
+        assertSame(failure, subscriber4.error());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void onNextNull_exception() {
+        subscriber4.onNext(null);
+    }
+
+    @Test
+    public void cancel_AB_cancelled() {
+        subscriber4.onNext("A");
+        subscriber4.cancel();
+        assertTrue(subscription.cancelled);
+        assertEquals("A", subscriber4.poll());
+        assertTrue(subscriber4.isDone());
+    }
+}
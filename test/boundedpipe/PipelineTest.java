@@ -0,0 +1,268 @@
+package boundedpipe;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.*;
+
+public class PipelineTest {
+
+    @Test(expected = IllegalStateException.class)
+    public void build_noSink_exception() {
+        Pipeline.<String>builder().map("upper", String::toUpperCase, 1).build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void map_afterSink_exception() {
+        Pipeline.<String>builder().sink("drop", s -> { }, 1)
+                .map("upper", s -> s, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void map_parallelism0_exception() {
+        Pipeline.<String>builder().map("upper", String::toUpperCase, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pipeCapacity0_exception() {
+        Pipeline.<String>builder().pipeCapacity(0);
+    }
+
+    @Test(timeout = 10000)
+    public void shutdown_mapFilterFlatMap_inOrder() throws InterruptedException {
+        List<String> out = Collections.synchronizedList(new ArrayList<>());
+        Pipeline<String> pipeline = Pipeline.<String>builder()
+                .pipeCapacity(2)
+                .map("parse", Integer::valueOf, 1)
+                .filter("odd", i -> i % 2 == 1, 1)
+                .flatMap("twice", i -> Arrays.asList(i, i * 10), 1)
+                .sink("collect", i -> out.add(String.valueOf(i)), 1)
+                .build();
+        pipeline.start();
+        for (String s : new String[] {"1", "2", "3", "4", "5"}) {
+            pipeline.put(s);
+        }
+        pipeline.shutdown();
+
+        assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("1", "10", "3", "30", "5", "50"), out);
+
+        List<Pipeline.Stage> stages = pipeline.stages();
+        assertEquals("parse", stages.get(0).name());
+        assertEquals(5, stages.get(0).emittedCount());
+        assertEquals(5, stages.get(1).receivedCount());
+        assertEquals(3, stages.get(1).emittedCount());
+        assertEquals(6, stages.get(2).emittedCount());
+        assertEquals(6, stages.get(3).receivedCount());
+    }
+
+    @Test(timeout = 10000)
+    public void shutdown_parallelStages_allProcessed() throws InterruptedException {
+        final int n = 10000;
+        LongAdder sum = new LongAdder();
+        Pipeline<Integer> pipeline = Pipeline.<Integer>builder()
+                .pipeCapacity(8)
+                .map("square", i -> (long) i * i, 4)
+                .sink("sum", sum::add, 3)
+                .build();
+        pipeline.start();
+        for (int i = 0; i < n; i++) {
+            pipeline.put(i);
+        }
+        pipeline.shutdown();
+
+        assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        long expected = 0;
+        for (long i = 0; i < n; i++) {
+            expected += i * i;
+        }
+        assertEquals(expected, sum.sum());
+        assertEquals(n, pipeline.stages().get(0).receivedCount());
+        assertEquals(n, pipeline.stages().get(1).receivedCount());
+    }
+
+    @Test(timeout = 10000)
+    public void shutdown_failingElements_countedAndDropped()
+            throws InterruptedException {
+        List<Integer> out = Collections.synchronizedList(new ArrayList<>());
+        Pipeline<String> pipeline = Pipeline.<String>builder()
+                .map("parse", Integer::valueOf, 1)
+                .map("nullForZero", i -> i == 0 ? null : i, 1)
+                .sink("collect", out::add, 1)
+                .build();
+        pipeline.start();
+        for (String s : new String[] {"1", "x", "0", "2"}) {
+            pipeline.put(s);
+        }
+        pipeline.shutdown();
+
+        assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 2), out);
+        assertEquals(1, pipeline.stages().get(0).failedCount());
+        assertEquals(1, pipeline.stages().get(1).failedCount());
+    }
+
+    @Test(timeout = 10000)
+    public void build_branchesFromOneBuilder_separatePipelines()
+            throws InterruptedException {
+        List<String> upper = Collections.synchronizedList(new ArrayList<>());
+        List<String> lower = Collections.synchronizedList(new ArrayList<>());
+        Pipeline.Builder<String, String> trimmed = Pipeline.<String>builder()
+                .map("trim", String::trim, 1);
+        Pipeline<String> first = trimmed
+                .map("upper", String::toUpperCase, 1)
+                .sink("collect", upper::add, 1)
+                .build();
+        Pipeline<String> second = trimmed
+                .map("lower", String::toLowerCase, 1)
+                .sink("collect", lower::add, 1)
+                .build();
+        assertEquals(3, first.stages().size());
+        assertEquals(3, second.stages().size());
+
+        first.start();
+        second.start();
+        first.put(" Ab ");
+        second.put(" Cd ");
+        first.shutdown();
+        second.shutdown();
+
+        assertTrue(first.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(second.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("AB"), upper);
+        assertEquals(Arrays.asList("cd"), lower);
+    }
+
+    @Test(timeout = 10000)
+    public void build_twice_freshStages() throws InterruptedException {
+        LongAdder sum = new LongAdder();
+        Pipeline.Builder<Integer, Integer> builder = Pipeline.<Integer>builder()
+                .map("double", i -> i * 2, 2);
+        Pipeline.Builder<Integer, Void> sunk = builder.sink("sum", sum::add, 2);
+        for (int run = 1; run <= 2; run++) {
+            Pipeline<Integer> pipeline = sunk.build();
+            pipeline.start();
+            for (int i = 1; i <= 3; i++) {
+                pipeline.put(i);
+            }
+            pipeline.shutdown();
+
+            assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(12L * run, sum.sum());
+            assertEquals(3, pipeline.stages().get(0).receivedCount());
+            assertEquals(3, pipeline.stages().get(1).receivedCount());
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void shutdown_racingPuts_everyAcceptedElementProcessed()
+            throws InterruptedException {
+        for (int round = 0; round < 50; round++) {
+            LongAdder processed = new LongAdder();
+            Pipeline<Integer> pipeline = Pipeline.<Integer>builder()
+                    .pipeCapacity(4)
+                    .sink("count", i -> processed.increment(), 2)
+                    .build();
+            pipeline.start();
+            LongAdder accepted = new LongAdder();
+            Thread[] putters = new Thread[3];
+            for (int i = 0; i < putters.length; i++) {
+                putters[i] = new Thread(() -> {
+                    try {
+                        while (true) {
+                            pipeline.put(1);
+                            accepted.increment();
+                        }
+                    }
+                    catch (IllegalStateException | InterruptedException e) {
+                        // shut down
+                    }
+                });
+                putters[i].start();
+            }
+            Thread.sleep(1);
+            pipeline.shutdown();
+            for (Thread putter : putters) {
+                putter.join();
+            }
+
+            assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(accepted.sum(), processed.sum());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void offer_fullPipe_false() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch taken = new CountDownLatch(1);
+        Pipeline<String> pipeline = Pipeline.<String>builder()
+                .pipeCapacity(1)
+                .sink("blocked", s -> {
+                    taken.countDown();
+                    try {
+                        release.await();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, 1)
+                .build();
+        pipeline.start();
+        pipeline.put("A");
+        taken.await();
+        assertTrue(pipeline.offer("B", 10, TimeUnit.MILLISECONDS));
+        assertFalse(pipeline.offer("C", 10, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        pipeline.shutdown();
+        assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, pipeline.stages().get(0).receivedCount());
+    }
+
+    @Test(timeout = 10000)
+    public void shutdownNow_idleWorkers_terminated() throws InterruptedException {
+        Pipeline<String> pipeline = Pipeline.<String>builder()
+                .map("upper", String::toUpperCase, 2)
+                .sink("drop", s -> { }, 2)
+                .build();
+        pipeline.start();
+        pipeline.shutdownNow();
+        assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void put_afterShutdown_exception() throws InterruptedException {
+        Pipeline<String> pipeline = Pipeline.<String>builder()
+                .sink("drop", s -> { }, 1).build();
+        pipeline.start();
+        pipeline.shutdown();
+        pipeline.put("A");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putNull_exception() throws InterruptedException {
+        Pipeline<String> pipeline = Pipeline.<String>builder()
+                .sink("drop", s -> { }, 1).build();
+        pipeline.put(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void start_twice_exception() {
+        Pipeline<String> pipeline = Pipeline.<String>builder()
+                .sink("drop", s -> { }, 1).build();
+        pipeline.start();
+        try {
+            pipeline.start();
+        }
+        finally {
+            pipeline.shutdownNow();
+        }
+    }
+}
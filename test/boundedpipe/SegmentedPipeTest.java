@@ -0,0 +1,247 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+
+public class SegmentedPipeTest {
+
+    private Pipe<String> pipeABC6;
+    private Pipe<String> pipeEmpty6;
+    private Pipe<String> pipeFull3;
+
+    @Before
+    public void setUp() {
+        pipeABC6 = initPipe(6, "A", "B", "C");
+        pipeEmpty6 = initPipe(6);
+        pipeFull3 = initPipe(3, "A", "B", "C");
+    }
+
+    public Pipe<String> initPipe(int capacity, String... args) {
+        Pipe<String> p = new SegmentedPipe<>(capacity, 2);
+        for (String s : args) {
+            p.append(s);
+        }
+        return p;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_segmentSize0_exception() {
+        new SegmentedPipe<String>(6, 0);
+    }
+
+    @Test
+    public void length_ABC_3() {
+        assertEquals(3, pipeABC6.length());
+    }
+
+    @Test
+    public void capacity_ABC_6() {
+        assertEquals(6, pipeABC6.capacity());
+    }
+
+    @Test
+    public void prependXY_ABC_YXABC() {
+        pipeABC6.prepend("X");
+        pipeABC6.prepend("Y");
+        assertEquals("[Y, X, A, B, C]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void prependX_empty_X() {
+        pipeEmpty6.prepend("X");
+        assertEquals("X", pipeEmpty6.first());
+        assertEquals("X", pipeEmpty6.last());
+    }
+
+    @Test
+    public void prependAppend_segmentSize1_XAY() {
+        SegmentedPipe<String> pipe = new SegmentedPipe<>(10, 1);
+        pipe.prepend("A");
+        pipe.prepend("X");
+        pipe.append("Y");
+        assertEquals("[X, A, Y]:10", pipe.toString());
+        assertEquals("X", pipe.removeFirst());
+        assertEquals("Y", pipe.removeLast());
+        assertEquals("A", pipe.removeLast());
+        pipe.append("B");
+        pipe.prepend("C");
+        assertEquals("[C, B]:10", pipe.toString());
+    }
+
+    @Test
+    public void prependAppend_capacity1_X() {
+        SegmentedPipe<String> pipe = new SegmentedPipe<>(1);
+        pipe.prepend("X");
+        assertEquals("X", pipe.first());
+        assertEquals("X", pipe.removeFirst());
+        pipe.append("Y");
+        assertEquals("Y", pipe.last());
+        assertEquals("[Y]:1", pipe.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void prependX_full_exception() {
+        pipeFull3.prepend("X");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendNull_ABC_exception() {
+        pipeABC6.append(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void appendX_full_exception() {
+        pipeFull3.append("X");
+    }
+
+    @Test
+    public void removeFirst_ABC_A() {
+        assertEquals("A", pipeABC6.removeFirst());
+        assertEquals("[B, C]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void removeLast_ABC_C() {
+        assertEquals("C", pipeABC6.removeLast());
+        assertEquals("[A, B]:6", pipeABC6.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removeFirst_empty_exception() {
+        pipeEmpty6.removeFirst();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removeLast_empty_exception() {
+        pipeEmpty6.removeLast();
+    }
+
+    @Test
+    public void removeLastAll_ABC_CBA() {
+        assertEquals("C", pipeABC6.removeLast());
+        assertEquals("B", pipeABC6.removeLast());
+        assertEquals("A", pipeABC6.removeLast());
+        assertTrue(pipeABC6.isEmpty());
+        assertNull(pipeABC6.first());
+        assertNull(pipeABC6.last());
+    }
+
+    @Test
+    public void removeFirstAppend_manySegments_inOrder() {
+        Pipe<Integer> p = new SegmentedPipe<>(5, 2);
+        for (int i = 0; i < 5; i++) {
+            p.append(i);
+        }
+        for (int i = 5; i < 100; i++) {
+            assertEquals(i - 5, p.removeFirst().intValue());
+            p.append(i);
+        }
+        assertEquals("[95, 96, 97, 98, 99]:5", p.toString());
+    }
+
+    @Test
+    public void removeLastPrepend_manySegments_inOrder() {
+        Pipe<Integer> p = new SegmentedPipe<>(5, 2);
+        for (int i = 0; i < 5; i++) {
+            p.prepend(i);
+        }
+        for (int i = 5; i < 100; i++) {
+            assertEquals(i - 5, p.removeLast().intValue());
+            p.prepend(i);
+        }
+        assertEquals("[99, 98, 97, 96, 95]:5", p.toString());
+    }
+
+    @Test
+    public void appendRemoveLast_segmentBoundary_unchanged() {
+        pipeABC6.append("D");
+        for (int i = 0; i < 10; i++) {
+            pipeABC6.append("X");
+            assertEquals("X", pipeABC6.removeLast());
+        }
+        assertEquals("[A, B, C, D]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void iterator_ABC() {
+        Iterator<String> it = pipeABC6.iterator();
+        assertEquals("A", it.next());
+        assertEquals("B", it.next());
+        assertEquals("C", it.next());
+        assertFalse(it.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void iterator_emptyOnce_exception() {
+        pipeEmpty6.iterator().next();
+    }
+
+    @Test
+    public void iterator_bothEnds_inOrder() {
+        pipeABC6.prepend("Y");
+        pipeABC6.prepend("X");
+        pipeABC6.append("D");
+        List<String> list = new ArrayList<>();
+        for (String s : pipeABC6) {
+            list.add(s);
+        }
+        assertEquals(Arrays.asList("X", "Y", "A", "B", "C", "D"), list);
+    }
+
+    @Test
+    public void equals_ABC6ArrayToABC6Segmented_true() {
+        Pipe<String> circArrayPipe = new CircArrayPipe<>(6);
+        circArrayPipe.append("A");
+        circArrayPipe.append("B");
+        circArrayPipe.append("C");
+        assertTrue(pipeABC6.equals(circArrayPipe));
+        assertEquals(circArrayPipe.hashCode(), pipeABC6.hashCode());
+    }
+
+    @Test
+    public void copy_ABC() {
+        Pipe<String> copy = pipeABC6.copy();
+        assertEquals(pipeABC6, copy);
+        assertTrue(copy instanceof SegmentedPipe);
+    }
+
+    @Test
+    public void clear_ABC6() {
+        pipeABC6.clear();
+        assertTrue(pipeABC6.isEmpty());
+        pipeABC6.append("X");
+        assertEquals("[X]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void appendAll_DEToABC_ABCDE() {
+        pipeABC6.appendAll(initPipe(2, "D", "E"));
+        assertEquals("[A, B, C, D, E]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void drainTo_ABCMax2_AB() {
+        List<String> list = new ArrayList<>();
+        assertEquals(2, pipeABC6.drainTo(list, 2));
+        assertEquals(Arrays.asList("A", "B"), list);
+        assertEquals("[C]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void first_ABC_A() {
+        assertEquals("A", pipeABC6.first());
+    }
+
+    @Test
+    public void last_ABC_C() {
+        assertEquals("C", pipeABC6.last());
+    }
+}
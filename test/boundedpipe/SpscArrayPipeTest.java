@@ -0,0 +1,196 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+
+public class SpscArrayPipeTest {
+
+    private SpscArrayPipe<String> pipeABC6;
+    private SpscArrayPipe<String> pipeEmpty6;
+    private SpscArrayPipe<String> pipeFull3;
+
+    @Before
+    public void setUp() {
+        pipeABC6 = initPipe(6, "A", "B", "C");
+        pipeEmpty6 = initPipe(6);
+        pipeFull3 = initPipe(3, "A", "B", "C");
+    }
+
+    public SpscArrayPipe<String> initPipe(int capacity, String... args) {
+        SpscArrayPipe<String> p = new SpscArrayPipe<>(capacity);
+        for (String s : args) {
+            p.append(s);
+        }
+        return p;
+    }
+
+    @Test
+    public void length_ABC_3() {
+        assertEquals(3, pipeABC6.length());
+    }
+
+    @Test
+    public void length_empty_0() {
+        assertEquals(0, pipeEmpty6.length());
+    }
+
+    @Test
+    public void firstLast_ABC_AC() {
+        assertEquals("A", pipeABC6.first());
+        assertEquals("C", pipeABC6.last());
+    }
+
+    @Test
+    public void firstLast_empty_null() {
+        assertNull(pipeEmpty6.first());
+        assertNull(pipeEmpty6.last());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void appendX_full_exception() {
+        pipeFull3.append("X");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendNull_ABC_exception() {
+        pipeABC6.append(null);
+    }
+
+    @Test
+    public void offerX_full_false() {
+        assertFalse(pipeFull3.offer("X"));
+        assertEquals("[A, B, C]:3", pipeFull3.toString());
+    }
+
+    @Test
+    public void poll_empty_null() {
+        assertNull(pipeEmpty6.poll());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removeFirst_empty_exception() {
+        pipeEmpty6.removeFirst();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void prependX_ABC_exception() {
+        pipeABC6.prepend("X");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void removeLast_ABC_exception() {
+        pipeABC6.removeLast();
+    }
+
+    @Test
+    public void removeFirstAppend_wrapped_inOrder() {
+        assertEquals("A", pipeFull3.removeFirst());
+        assertEquals("B", pipeFull3.removeFirst());
+        pipeFull3.append("D");
+        pipeFull3.append("E");
+        assertEquals("[C, D, E]:3", pipeFull3.toString());
+        assertEquals("E", pipeFull3.last());
+        assertTrue(pipeFull3.isFull());
+    }
+
+    @Test
+    public void offerPoll_capacity3ManyRounds_limitAndOrderKept() {
+        SpscArrayPipe<String> p = initPipe(3);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(p.offer("A" + i));
+            assertTrue(p.offer("B" + i));
+            assertTrue(p.offer("C" + i));
+            assertFalse(p.offer("X"));
+            assertEquals("A" + i, p.first());
+            assertEquals("C" + i, p.last());
+            assertEquals("A" + i, p.poll());
+            assertEquals("B" + i, p.poll());
+            assertEquals("C" + i, p.poll());
+        }
+        assertTrue(p.isEmpty());
+    }
+
+    @Test
+    public void clear_ABC_empty() {
+        pipeABC6.clear();
+        assertTrue(pipeABC6.isEmpty());
+        pipeABC6.append("X");
+        assertEquals("[X]:6", pipeABC6.toString());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void iterator_emptyOnce_exception() {
+        Iterator<String> iterator = pipeEmpty6.iterator();
+        iterator.next();
+    }
+
+    @Test
+    public void equals_ABC6ArrayToABC6Spsc_true() {
+        Pipe<String> circArrayPipe = new CircArrayPipe<>(6);
+        circArrayPipe.append("A");
+        circArrayPipe.append("B");
+        circArrayPipe.append("C");
+        assertTrue(pipeABC6.equals(circArrayPipe));
+        assertEquals(circArrayPipe.hashCode(), pipeABC6.hashCode());
+    }
+
+    @Test
+    public void copy_ABC() {
+        Pipe<String> copy = pipeABC6.copy();
+        assertEquals(pipeABC6, copy);
+        assertTrue(copy instanceof SpscArrayPipe);
+    }
+
+    @Test
+    public void appendAll_DEToABC_ABCDE() {
+        pipeABC6.appendAll(initPipe(2, "D", "E"));
+        assertEquals("[A, B, C, D, E]:6", pipeABC6.toString());
+    }
+
+    @Test(timeout = 10000)
+    public void handOff_twoThreads_inOrder() throws InterruptedException {
+        final int n = 100000;
+        final SpscArrayPipe<Integer> p = new SpscArrayPipe<>(64);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < n; i++) {
+                while (!p.offer(i)) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+
+        for (int i = 0; i < n; i++) {
+            Integer e;
+            while ((e = p.poll()) == null) {
+                Thread.yield();
+            }
+            assertEquals(i, e.intValue());
+        }
+        producer.join();
+        assertTrue(p.isEmpty());
+    }
+
+    @Test
+    public void drain_wrappedMax5_inOrder() {
+        pipeFull3.removeFirst();
+        pipeFull3.append("D");
+        StringBuilder result = new StringBuilder();
+        assertEquals(3, pipeFull3.drain(result::append, 5));
+        assertEquals("BCD", result.toString());
+        assertTrue(pipeFull3.offer("E"));
+        assertEquals("[E]:3", pipeFull3.toString());
+    }
+
+    @Test
+    public void drainFirst_ABCMax2_AB() {
+        String[] dest = new String[2];
+        assertEquals(2, pipeABC6.drainFirst(dest, 0, 2));
+        assertArrayEquals(new String[] {"A", "B"}, dest);
+    }
+}
@@ -0,0 +1,319 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StripedPipeTest {
+
+    private StripedPipe<String> pipe8Lanes2;
+    private StripedPipe<String> sequenced8Lanes2;
+
+    @Before
+    public void setUp() {
+        pipe8Lanes2 = new StripedPipe<>(8, 2);
+        sequenced8Lanes2 = new StripedPipe<>(8, 2, true);
+    }
+
+    /**
+     * Returns hashes picking each of the lanes of a two-lane pipe, found by
+     * filling a pipe with one slot per lane.
+     */
+    private static int[] laneHashes(StripedPipe<String> pipe) {
+        assertEquals(2, pipe.laneCount());
+        StripedPipe<String> probe = new StripedPipe<>(2, 2);
+        probe.append("0", 0);
+        int other = 1;
+        while (!probe.offer("1", other)) {
+            other++;
+        }
+        return new int[] {0, other};
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_moreLanesThanCapacity_exception() {
+        new StripedPipe<String>(2, 3);
+    }
+
+    @Test
+    public void constructor_capacity8Lanes3_capacity8() {
+        StripedPipe<Integer> pipe = new StripedPipe<>(8, 3);
+        assertEquals(8, pipe.capacity());
+        assertEquals(3, pipe.laneCount());
+        assertFalse(pipe.isGlobalSequence());
+    }
+
+    @Test
+    public void append_sameThread_FIFO() {
+        for (String s : new String[] {"A", "B", "C"}) {
+            pipe8Lanes2.append(s);
+        }
+        assertEquals(3, pipe8Lanes2.length());
+        assertEquals("A", pipe8Lanes2.first());
+        assertEquals("C", pipe8Lanes2.last());
+        assertEquals("[A, B, C]:8", pipe8Lanes2.toString());
+        assertEquals("A", pipe8Lanes2.removeFirst());
+        assertEquals("B", pipe8Lanes2.poll());
+        assertEquals("C", pipe8Lanes2.poll());
+        assertNull(pipe8Lanes2.poll());
+    }
+
+    @Test
+    public void offer_laneFull_falseWhileOtherLaneFree() {
+        int[] hashes = laneHashes(pipe8Lanes2);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(pipe8Lanes2.offer("A" + i, hashes[0]));
+        }
+        assertFalse(pipe8Lanes2.offer("X", hashes[0]));
+        assertTrue(pipe8Lanes2.offer("B", hashes[1]));
+        assertEquals(5, pipe8Lanes2.length());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void append_laneFull_exception() {
+        for (int i = 0; i < 5; i++) {
+            pipe8Lanes2.append("A" + i, 7);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendNull_exception() {
+        pipe8Lanes2.append(null);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void prepend_exception() {
+        pipe8Lanes2.prepend("A");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void removeLast_exception() {
+        pipe8Lanes2.removeLast();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removeFirst_empty_exception() {
+        pipe8Lanes2.removeFirst();
+    }
+
+    @Test
+    public void poll_twoLanes_roundRobinLaneFIFO() {
+        int[] hashes = laneHashes(pipe8Lanes2);
+        pipe8Lanes2.append("A1", hashes[0]);
+        pipe8Lanes2.append("A2", hashes[0]);
+        pipe8Lanes2.append("B1", hashes[1]);
+        pipe8Lanes2.append("B2", hashes[1]);
+
+        List<String> a = new ArrayList<>();
+        List<String> b = new ArrayList<>();
+        String e;
+        while ((e = pipe8Lanes2.poll()) != null) {
+            (e.startsWith("A") ? a : b).add(e);
+        }
+        assertEquals(List.of("A1", "A2"), a);
+        assertEquals(List.of("B1", "B2"), b);
+    }
+
+    @Test
+    public void poll_globalSequence_insertionOrder() {
+        int[] hashes = laneHashes(sequenced8Lanes2);
+        sequenced8Lanes2.append("1", hashes[0]);
+        sequenced8Lanes2.append("2", hashes[1]);
+        sequenced8Lanes2.append("3", hashes[1]);
+        sequenced8Lanes2.append("4", hashes[0]);
+        assertEquals("[1, 2, 3, 4]:8", sequenced8Lanes2.toString());
+        assertEquals("1", sequenced8Lanes2.first());
+        assertEquals("4", sequenced8Lanes2.last());
+
+        StringBuilder sb = new StringBuilder();
+        assertEquals(3, sequenced8Lanes2.drain(sb::append, 3));
+        assertEquals("4", sequenced8Lanes2.poll());
+        assertEquals("123", sb.toString());
+    }
+
+    @Test
+    public void clear_globalSequence_continues() {
+        sequenced8Lanes2.append("A", 1);
+        sequenced8Lanes2.clear();
+        assertTrue(sequenced8Lanes2.isEmpty());
+        sequenced8Lanes2.append("B", 2);
+        assertEquals("B", sequenced8Lanes2.poll());
+    }
+
+    @Test
+    public void drain_twoLanes_all() {
+        int[] hashes = laneHashes(pipe8Lanes2);
+        pipe8Lanes2.append("A", hashes[0]);
+        pipe8Lanes2.append("B", hashes[1]);
+        pipe8Lanes2.append("C", hashes[1]);
+        String[] dest = new String[4];
+        assertEquals(3, pipe8Lanes2.drainFirst(dest, 1, 3));
+        assertNull(dest[0]);
+        assertTrue(pipe8Lanes2.isEmpty());
+    }
+
+    @Test
+    public void copy_ABC_equal() {
+        pipe8Lanes2.append("A");
+        pipe8Lanes2.append("B");
+        Pipe<String> copy = pipe8Lanes2.copy();
+        assertTrue(copy instanceof StripedPipe);
+        assertEquals(pipe8Lanes2, copy);
+    }
+
+    @Test
+    public void copy_moreThanOneLaneHolds_sameLanes() {
+        StripedPipe<String> pipe = new StripedPipe<>(8, 4);
+        pipe.append("a");
+        pipe.append("b");
+        int hash = 0;
+        while (!pipe.offer("c", hash)) {
+            hash++;
+        }
+        Pipe<String> copy = pipe.copy();
+        assertEquals(pipe, copy);
+        assertEquals(3, copy.length());
+        assertFalse(((StripedPipe<String>) copy).offer("d"));
+        copy.clear();
+        assertEquals(3, pipe.length());
+    }
+
+    @Test
+    public void copy_globalSequence_sameOrder() {
+        int[] hashes = laneHashes(sequenced8Lanes2);
+        sequenced8Lanes2.append("1", hashes[1]);
+        sequenced8Lanes2.append("2", hashes[0]);
+        StripedPipe<String> copy = (StripedPipe<String>) sequenced8Lanes2.copy();
+        copy.append("3", hashes[1]);
+        assertEquals("1", copy.poll());
+        assertEquals("2", copy.poll());
+        assertEquals("3", copy.poll());
+    }
+
+    @Test
+    public void appendAll_moreThanOneLaneHolds_allAdded() {
+        StripedPipe<String> pipe = new StripedPipe<>(8, 4);
+        pipe.append("a");
+        pipe.append("b");
+        Pipe<String> src = new CircArrayPipe<>(4);
+        src.append("c");
+        src.append("d");
+        pipe.appendAll(src);
+        assertTrue(src.isEmpty());
+        assertEquals(4, pipe.length());
+        StringBuilder sb = new StringBuilder();
+        pipe.drain(sb::append, 4);
+        char[] taken = sb.toString().toCharArray();
+        Arrays.sort(taken);
+        assertEquals("abcd", new String(taken));
+    }
+
+    @Test
+    public void appendAll_filledByOtherProducer_notAddedElementKept() {
+        StripedPipe<String> pipe = new StripedPipe<>(4, 2);
+        pipe.append("a", 0);
+        Pipe<String> src = new CircArrayPipe<String>(3) {
+            private int calls;
+
+            @Override
+            public String first() {
+                if (++calls == 2) {
+                    for (int hash = 0; !pipe.isFull(); hash++) {
+                        pipe.offer("x", hash);
+                    }
+                }
+                return super.first();
+            }
+        };
+        src.append("b");
+        src.append("c");
+        src.append("d");
+
+        try {
+            pipe.appendAll(src);
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertEquals(4, pipe.length());
+            assertEquals("[c, d]:3", src.toString());
+        }
+    }
+
+    @Test
+    public void appendBatch_moreThanOneLaneHolds_allAdded() {
+        StripedPipe<String> pipe = new StripedPipe<>(8, 4);
+        pipe.append("a");
+        pipe.append("b");
+        pipe.appendBatch(new String[] {"c", "d", "e"}, 0, 3);
+        assertEquals(5, pipe.length());
+        pipe.appendBatch(List.of("f", "g", "h"));
+        assertTrue(pipe.isFull());
+    }
+
+    @Test
+    public void appendBatch_doesNotFit_nothingAdded() {
+        StripedPipe<String> pipe = new StripedPipe<>(8, 4);
+        pipe.append("a");
+        pipe.append("b");
+        try {
+            pipe.appendBatch(new String[] {"c", "d", "e", "f", "g", "h", "i"},
+                    0, 7);
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertEquals("[a, b]:8", pipe.toString());
+        }
+    }
+
+    @Test
+    public void appendBatch_globalSequence_batchOrderKept() {
+        sequenced8Lanes2.append("1");
+        sequenced8Lanes2.appendBatch(new String[] {"2", "3", "4"}, 0, 3);
+        assertEquals("[1, 2, 3, 4]:8", sequenced8Lanes2.toString());
+        StringBuilder sb = new StringBuilder();
+        sequenced8Lanes2.drain(sb::append, 4);
+        assertEquals("1234", sb.toString());
+    }
+
+    @Test(timeout = 20000)
+    public void producers_globalSequence_eachProducerInOrder()
+            throws InterruptedException {
+        final int producers = 4;
+        final int n = 20000;
+        StripedPipe<int[]> pipe = new StripedPipe<>(64, 4, true);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < n; i++) {
+                    while (!pipe.offer(new int[] {id, i})) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(producer);
+            producer.start();
+        }
+
+        int[] next = new int[producers];
+        int taken = 0;
+        while (taken < producers * n) {
+            int[] e = pipe.poll();
+            if (e == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(next[e[0]]++, e[1]);
+            taken++;
+        }
+        for (Thread producer : threads) {
+            producer.join();
+        }
+        assertTrue(pipe.isEmpty());
+    }
+}
@@ -0,0 +1,206 @@
+package boundedpipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class WorkStealingPipeTest {
+
+    private WorkStealingPipe<String> pipeABC6;
+    private WorkStealingPipe<String> pipeEmpty6;
+    private WorkStealingPipe<String> pipeFull3;
+
+    @Before
+    public void setUp() {
+        pipeABC6 = initPipe(6, "A", "B", "C");
+        pipeEmpty6 = initPipe(6);
+        pipeFull3 = initPipe(3, "A", "B", "C");
+    }
+
+    public WorkStealingPipe<String> initPipe(int capacity, String... args) {
+        WorkStealingPipe<String> p = new WorkStealingPipe<>(capacity);
+        for (String s : args) {
+            p.append(s);
+        }
+        return p;
+    }
+
+    @Test
+    public void length_ABC_3() {
+        assertEquals(3, pipeABC6.length());
+    }
+
+    @Test
+    public void firstLast_ABC_AC() {
+        assertEquals("A", pipeABC6.first());
+        assertEquals("C", pipeABC6.last());
+    }
+
+    @Test
+    public void firstLast_empty_null() {
+        assertNull(pipeEmpty6.first());
+        assertNull(pipeEmpty6.last());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void appendX_full_exception() {
+        pipeFull3.append("X");
+    }
+
+    @Test
+    public void offerX_full_false() {
+        assertFalse(pipeFull3.offer("X"));
+        assertEquals("[A, B, C]:3", pipeFull3.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void offerNull_exception() {
+        pipeABC6.offer(null);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void prependX_ABC_exception() {
+        pipeABC6.prepend("X");
+    }
+
+    @Test
+    public void pollLast_ABC_CBA() {
+        assertEquals("C", pipeABC6.pollLast());
+        assertEquals("B", pipeABC6.pollLast());
+        assertEquals("A", pipeABC6.pollLast());
+        assertNull(pipeABC6.pollLast());
+        assertEquals(0, pipeABC6.length());
+    }
+
+    @Test
+    public void stealFirst_ABC_AB() {
+        assertEquals("A", pipeABC6.stealFirst());
+        assertEquals("B", pipeABC6.removeFirst());
+        assertEquals("C", pipeABC6.removeLast());
+        assertNull(pipeABC6.stealFirst());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removeLast_empty_exception() {
+        pipeEmpty6.removeLast();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removeFirst_empty_exception() {
+        pipeEmpty6.removeFirst();
+    }
+
+    @Test
+    public void stealAppend_wrapped_inOrder() {
+        pipeFull3.stealFirst();
+        pipeFull3.stealFirst();
+        pipeFull3.append("D");
+        pipeFull3.append("E");
+        assertEquals("[C, D, E]:3", pipeFull3.toString());
+        assertEquals("E", pipeFull3.removeLast());
+        assertEquals("C", pipeFull3.removeFirst());
+    }
+
+    @Test
+    public void stealAppend_capacity3ManyRounds_limitKept() {
+        for (int i = 0; i < 20; i++) {
+            assertFalse(pipeFull3.offer("X"));
+            assertEquals("A", pipeFull3.stealFirst());
+            assertTrue(pipeFull3.offer("A"));
+            assertEquals("[B, C, A]:3", pipeFull3.toString());
+            assertEquals("A", pipeFull3.pollLast());
+            assertEquals("B", pipeFull3.stealFirst());
+            assertEquals("C", pipeFull3.stealFirst());
+            pipeFull3.append("A");
+            pipeFull3.append("B");
+            pipeFull3.append("C");
+        }
+    }
+
+    @Test
+    public void clear_ABC_empty() {
+        pipeABC6.clear();
+        assertTrue(pipeABC6.isEmpty());
+        pipeABC6.append("D");
+        assertEquals("[D]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void drainFirst_ABCMax2_AB() {
+        String[] dest = new String[2];
+        assertEquals(2, pipeABC6.drainFirst(dest, 0, 2));
+        assertArrayEquals(new String[] {"A", "B"}, dest);
+        assertEquals("[C]:6", pipeABC6.toString());
+    }
+
+    @Test
+    public void copy_ABC() {
+        Pipe<String> copy = pipeABC6.copy();
+        assertTrue(copy instanceof WorkStealingPipe);
+        assertEquals(pipeABC6, copy);
+    }
+
+    @Test(timeout = 20000)
+    public void ownerAndThieves_concurrent_eachElementOnce()
+            throws InterruptedException {
+        final int n = 200000;
+        WorkStealingPipe<Integer> pipe = new WorkStealingPipe<>(64);
+        AtomicBoolean done = new AtomicBoolean();
+        boolean[] seen = new boolean[n];
+        List<List<Integer>> stolen = new ArrayList<>();
+        List<Thread> thieves = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            List<Integer> mine = new ArrayList<>();
+            stolen.add(mine);
+            Thread thief = new Thread(() -> {
+                while (!done.get() || !pipe.isEmpty()) {
+                    Integer e = pipe.stealFirst();
+                    if (e != null) {
+                        mine.add(e);
+                    }
+                }
+            });
+            thieves.add(thief);
+            thief.start();
+        }
+
+        int popped = 0;
+        for (int i = 0; i < n; i++) {
+            while (!pipe.offer(i)) {
+                Integer e = pipe.pollLast();
+                if (e != null) {
+                    assertFalse(seen[e]);
+                    seen[e] = true;
+                    popped++;
+                }
+            }
+            if (i % 3 == 0) {
+                Integer e = pipe.pollLast();
+                if (e != null) {
+                    assertFalse(seen[e]);
+                    seen[e] = true;
+                    popped++;
+                }
+            }
+        }
+        done.set(true);
+        for (Thread thief : thieves) {
+            thief.join();
+        }
+
+        int total = popped;
+        for (List<Integer> mine : stolen) {
+            for (Integer e : mine) {
+                assertFalse(seen[e]);
+                seen[e] = true;
+                total++;
+            }
+        }
+        assertEquals(n, total);
+    }
+}
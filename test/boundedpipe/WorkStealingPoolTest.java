@@ -0,0 +1,161 @@
+package boundedpipe;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class WorkStealingPoolTest {
+
+    private WorkStealingPool pool4;
+
+    @Before
+    public void setUp() {
+        pool4 = new WorkStealingPool(4, 16);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        pool4.shutdown();
+        pool4.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_parallelism0_exception() {
+        new WorkStealingPool(0, 16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void executeNull_exception() {
+        pool4.execute(null);
+    }
+
+    @Test(timeout = 10000)
+    public void execute_1000Tasks_allRun() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            pool4.execute(latch::countDown);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Adds up [from, to) by forking halves until the range is small, and
+     * waits for the forked half with helpOne.
+     */
+    private void sum(int from, int to, AtomicLong total) {
+        if (to - from <= 64) {
+            long s = 0;
+            for (int i = from; i < to; i++) {
+                s += i;
+            }
+            total.addAndGet(s);
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        AtomicInteger pending = new AtomicInteger(1);
+        pool4.execute(() -> {
+            sum(mid, to, total);
+            pending.decrementAndGet();
+        });
+        sum(from, mid, total);
+        while (pending.get() != 0) {
+            if (!pool4.helpOne()) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void execute_forkJoinSum_correct() throws InterruptedException {
+        final int n = 1 << 20;
+        AtomicLong total = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(1);
+        pool4.execute(() -> {
+            sum(0, n, total);
+            done.countDown();
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals((long) n * (n - 1) / 2, total.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void helpOne_notWorker_exception() {
+        pool4.helpOne();
+    }
+
+    @Test(timeout = 10000)
+    public void shutdown_pendingTasks_runBeforeTermination()
+            throws InterruptedException {
+        AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            pool4.execute(count::incrementAndGet);
+        }
+        pool4.shutdown();
+        assertTrue(pool4.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(100, count.get());
+    }
+
+    @Test(timeout = 20000)
+    public void execute_racingShutdown_everyAcceptedTaskRuns()
+            throws InterruptedException {
+        for (int round = 0; round < 50; round++) {
+            WorkStealingPool pool = new WorkStealingPool(2, 4);
+            AtomicInteger accepted = new AtomicInteger();
+            AtomicInteger ran = new AtomicInteger();
+            Thread[] submitters = new Thread[3];
+            for (int i = 0; i < submitters.length; i++) {
+                submitters[i] = new Thread(() -> {
+                    try {
+                        while (true) {
+                            pool.execute(ran::incrementAndGet);
+                            accepted.incrementAndGet();
+                        }
+                    }
+                    catch (RejectedExecutionException e) {
+                        // shut down
+                    }
+                });
+                submitters[i].start();
+            }
+            Thread.sleep(1);
+            pool.shutdown();
+            for (Thread submitter : submitters) {
+                submitter.join();
+            }
+            assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(accepted.get(), ran.get());
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void execute_afterShutdown_exception() {
+        pool4.shutdown();
+        pool4.execute(() -> { });
+    }
+
+    @Test(timeout = 10000)
+    public void execute_throwingTask_workerSurvives() throws InterruptedException {
+        WorkStealingPool pool = new WorkStealingPool(1, 4);
+        CountDownLatch latch = new CountDownLatch(1);
+        CountDownLatch reported = new CountDownLatch(1);
+        pool.execute(() -> {
+            Thread.currentThread().setUncaughtExceptionHandler(
+                    (t, e) -> reported.countDown());
+            throw new RuntimeException();
+        });
+        pool.execute(latch::countDown);
+        assertTrue(reported.await(5, TimeUnit.SECONDS));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}